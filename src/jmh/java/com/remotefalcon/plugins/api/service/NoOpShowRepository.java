@@ -0,0 +1,71 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.mongodb.MongoClientSettings;
+import com.remotefalcon.library.models.Request;
+import com.remotefalcon.library.quarkus.entity.Show;
+import com.remotefalcon.plugins.api.repository.ShowRepository;
+import com.remotefalcon.plugins.api.repository.ShowUpdate;
+import com.remotefalcon.plugins.api.repository.VersionedShow;
+import org.bson.BsonDocument;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.codecs.pojo.PojoCodecProvider;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@link ShowRepository} that never talks to Mongo. Updates are still encoded the way the driver would send them,
+ * so the cost of building and serializing the write shows up in the benchmarks, loads return the fixture show as
+ * it is, and the dequeue picks the next request from it the way the server-side pipeline would, without removing
+ * it.
+ */
+class NoOpShowRepository extends ShowRepository {
+    private static final CodecRegistry CODECS = CodecRegistries.fromRegistries(
+            MongoClientSettings.getDefaultCodecRegistry(),
+            CodecRegistries.fromProviders(PojoCodecProvider.builder().automatic(true).build()));
+
+    private final Show show;
+    BsonDocument lastUpdate;
+
+    NoOpShowRepository(Show show) {
+        this.show = show;
+    }
+
+    @Override
+    public boolean update(String showToken, ShowUpdate update) {
+        this.lastUpdate = encode(update);
+        return true;
+    }
+
+    @Override
+    public boolean update(String showToken, Long expectedVersion, ShowUpdate update) {
+        this.lastUpdate = encode(update);
+        return true;
+    }
+
+    @Override
+    public void bulkUpdate(Map<String, ShowUpdate> updatesByShowToken) {
+        updatesByShowToken.values().forEach(update -> this.lastUpdate = encode(update));
+    }
+
+    static BsonDocument encode(ShowUpdate update) {
+        return update.toBson().toBsonDocument(BsonDocument.class, CODECS);
+    }
+
+    @Override
+    public Optional<VersionedShow> findVersionedByShowToken(String showToken, String[] fields) {
+        return Optional.of(new VersionedShow(this.show, null, 0));
+    }
+
+    @Override
+    public String findStringField(String showToken, String field) {
+        return null;
+    }
+
+    @Override
+    public Optional<Request> dequeueNextRequest(String showToken) {
+        return this.show.getRequests().stream().min(Comparator.comparing(Request::getPosition));
+    }
+}
@@ -0,0 +1,23 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.remotefalcon.library.models.Stat;
+import com.remotefalcon.plugins.api.repository.VotingWinRepository;
+
+import java.time.LocalDate;
+
+/**
+ * {@link VotingWinRepository} that counts wins in memory instead of writing them to Mongo.
+ */
+class NoOpVotingWinRepository extends VotingWinRepository {
+    private int count;
+
+    @Override
+    public void record(String showToken, Stat.VotingWin votingWin) {
+        this.count++;
+    }
+
+    @Override
+    public int count(String showToken, LocalDate day) {
+        return this.count;
+    }
+}
@@ -0,0 +1,109 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.remotefalcon.library.quarkus.entity.Show;
+import com.remotefalcon.plugins.api.context.ShowContext;
+import com.remotefalcon.plugins.api.diagnostics.ShowProfiler;
+import com.remotefalcon.plugins.api.model.UpdateWhatsPlayingRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the {@link PluginService} hot paths against synthetic shows, with Mongo replaced by
+ * {@link NoOpShowRepository} and {@link NoOpVotingWinRepository}. Run with {@code ./gradlew jmh}; the build enables
+ * the gc profiler so allocation per operation is reported next to throughput.
+ * <p>
+ * These operations change the show, so each one starts by putting back the parts they change from a
+ * {@link ShowSnapshot}; {@link #restore} measures that alone, to be subtracted from the other scores. The service is
+ * built once per trial, since its unit of work is emptied by every flush.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PluginServiceBenchmark {
+    @Param({"10", "200", "2000"})
+    int sequences;
+
+    @Param({"0", "1000", "50000"})
+    int votes;
+
+    private ShowSnapshot snapshot;
+    private ShowContext showContext;
+    private PluginService pluginService;
+    private ObjectMapper objectMapper;
+    private byte[] syncBody;
+    private UpdateWhatsPlayingRequest whatsPlayingRequest;
+
+    @Setup(Level.Trial)
+    public void service() throws JsonProcessingException {
+        this.objectMapper = new ObjectMapper();
+        this.syncBody = this.objectMapper.writeValueAsBytes(ShowFixtures.syncRequest(this.sequences));
+        this.whatsPlayingRequest = UpdateWhatsPlayingRequest.builder().playlist("Sequence 1").build();
+
+        Show show = ShowFixtures.show(this.sequences, this.votes);
+        this.snapshot = new ShowSnapshot(show);
+        this.showContext = new ShowContext();
+        this.showContext.setShow(show);
+        ShowLocks showLocks = new ShowLocks();
+        showLocks.stripes = 1;
+        showLocks.init();
+        NoOpShowRepository showRepository = new NoOpShowRepository(show);
+        ShowUnitOfWork unitOfWork = new ShowUnitOfWork();
+        unitOfWork.showContext = this.showContext;
+        unitOfWork.showRepository = showRepository;
+        //Never samples, the sample rate is left at 0
+        unitOfWork.showProfiler = new ShowProfiler();
+        this.pluginService = new PluginService();
+        this.pluginService.showContext = this.showContext;
+        this.pluginService.showRepository = showRepository;
+        this.pluginService.unitOfWork = unitOfWork;
+        this.pluginService.votingWinRepository = new NoOpVotingWinRepository();
+        this.pluginService.pollingService = new PollingService();
+        this.pluginService.pollingService.showRepository = showRepository;
+        this.pluginService.pollingService.heartbeatBuffer = new HeartbeatBuffer();
+        this.pluginService.sequenceLimit = Integer.MAX_VALUE;
+        this.pluginService.showLocks = showLocks;
+        this.pluginService.maxWriteAttempts = 1;
+        this.pluginService.objectMapper = this.objectMapper;
+    }
+
+    @Benchmark
+    public Object restore() {
+        return this.snapshot.restore();
+    }
+
+    @Benchmark
+    public Object highestVotedPlaylist() {
+        this.showContext.setShow(this.snapshot.restore());
+        return this.pluginService.highestVotedPlaylist();
+    }
+
+    @Benchmark
+    public Object updateWhatsPlaying() {
+        this.showContext.setShow(this.snapshot.restore());
+        return this.pluginService.updateWhatsPlaying(this.whatsPlayingRequest);
+    }
+
+    @Benchmark
+    public Object syncPlaylists() {
+        this.showContext.setShow(this.snapshot.restore());
+        return this.pluginService.syncPlaylists(new ByteArrayInputStream(this.syncBody));
+    }
+}
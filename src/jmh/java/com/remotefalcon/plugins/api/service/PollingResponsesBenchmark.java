@@ -0,0 +1,114 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.remotefalcon.library.enums.ViewerControlMode;
+import com.remotefalcon.library.models.Request;
+import com.remotefalcon.library.models.Sequence;
+import com.remotefalcon.plugins.api.model.PluginResponse;
+import com.remotefalcon.plugins.api.model.RemotePreferenceResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The polling response bodies, built as models and serialized by Jackson the way the endpoints used to
+ * ({@code jackson*}), against {@link PollingResponses} ({@code precomputed*}). Compare the scores and the
+ * {@code gc.alloc.rate.norm} of each pair. Setup fails if the two ever produce different bytes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PollingResponsesBenchmark {
+    private static final String SUBDOMAIN = "benchmark-show";
+
+    private ObjectMapper objectMapper;
+    private PollingResponses pollingResponses;
+    private Optional<Request> nextRequest;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        this.objectMapper = new ObjectMapper();
+        this.pollingResponses = new PollingResponses();
+        this.pollingResponses.objectMapper = this.objectMapper;
+        this.pollingResponses.init();
+        this.nextRequest = Optional.of(Request.builder()
+                .sequence(Sequence.builder().name("Sequence \"1\" ☃").index(12).build())
+                .position(0)
+                .build());
+
+        same(this.jacksonQueueEmpty(), this.precomputedQueueEmpty());
+        same(this.jacksonViewerControlMode(), this.precomputedViewerControlMode());
+        same(this.jacksonNextPlaylist(), this.precomputedNextPlaylist());
+        same(this.objectMapper.writeValueAsBytes(PluginService.nextPlaylistResponse(Optional.empty())),
+                this.pollingResponses.nextPlaylist(Optional.empty()));
+        same(this.jacksonRemotePreferences(), this.precomputedRemotePreferences());
+        same(this.objectMapper.writeValueAsBytes(RemotePreferenceResponse.builder().viewerControlMode("voting").build()),
+                this.pollingResponses.remotePreferences(ViewerControlMode.VOTING, null));
+    }
+
+    private static void same(byte[] expected, byte[] actual) {
+        if(!Arrays.equals(expected, actual)) {
+            throw new IllegalStateException("Expected " + new String(expected) + " but wrote " + new String(actual));
+        }
+    }
+
+    @Benchmark
+    public byte[] jacksonQueueEmpty() throws JsonProcessingException {
+        return this.objectMapper.writeValueAsBytes(PluginResponse.builder().message("Queue Empty").build());
+    }
+
+    @Benchmark
+    public byte[] precomputedQueueEmpty() {
+        return this.pollingResponses.queueEmpty();
+    }
+
+    @Benchmark
+    public byte[] jacksonViewerControlMode() throws JsonProcessingException {
+        return this.objectMapper.writeValueAsBytes(PluginResponse.builder()
+                .viewerControlMode(ViewerControlMode.JUKEBOX.name().toLowerCase())
+                .build());
+    }
+
+    @Benchmark
+    public byte[] precomputedViewerControlMode() {
+        return this.pollingResponses.viewerControlMode(ViewerControlMode.JUKEBOX);
+    }
+
+    @Benchmark
+    public byte[] jacksonNextPlaylist() throws JsonProcessingException {
+        return this.objectMapper.writeValueAsBytes(PluginService.nextPlaylistResponse(this.nextRequest));
+    }
+
+    @Benchmark
+    public byte[] precomputedNextPlaylist() {
+        return this.pollingResponses.nextPlaylist(this.nextRequest);
+    }
+
+    @Benchmark
+    public byte[] jacksonRemotePreferences() throws JsonProcessingException {
+        return this.objectMapper.writeValueAsBytes(RemotePreferenceResponse.builder()
+                .remoteSubdomain(SUBDOMAIN)
+                .viewerControlMode(ViewerControlMode.VOTING.name().toLowerCase())
+                .build());
+    }
+
+    @Benchmark
+    public byte[] precomputedRemotePreferences() {
+        return this.pollingResponses.remotePreferences(ViewerControlMode.VOTING, SUBDOMAIN);
+    }
+}
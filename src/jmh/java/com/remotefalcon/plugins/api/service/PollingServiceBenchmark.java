@@ -0,0 +1,109 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.remotefalcon.library.quarkus.entity.Show;
+import com.remotefalcon.plugins.api.context.RequestAttributes;
+import com.remotefalcon.plugins.api.context.ShowContext;
+import com.remotefalcon.plugins.api.diagnostics.ShowProfiler;
+import com.remotefalcon.plugins.api.filters.ShowTokenFilter;
+import com.remotefalcon.plugins.api.repository.VersionedShow;
+import io.smallrye.common.vertx.VertxContext;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-poll allocation of answering {@code viewerControlMode}, the cheapest poll, so that the objects built around it
+ * dominate. {@link #perRequestInstances} allocates and wires the filter, show context, unit of work and service every
+ * poll, as the request-scoped design ended up doing; {@link #stateless} hands the show over as a request attribute
+ * on the request's duplicated context and answers it from one shared {@link PollingService}. Compare the
+ * {@code gc.alloc.rate.norm} of the two.
+ * <p>
+ * This runs outside Quarkus, without an ArC container, so it says nothing about the cost of the request scope
+ * itself: context activation, client proxy lookups and bean destruction are not measured, and the throughput of
+ * {@link #perRequestInstances} is not the throughput of a request-scoped poll.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PollingServiceBenchmark {
+    private static final String[] FIELDS = {"preferences"};
+
+    private Vertx vertx;
+    private Context context;
+    private VersionedShow loaded;
+    private NoOpShowRepository showRepository;
+    private ShowProfiler showProfiler;
+    private PollingService pollingService;
+
+    @Setup(Level.Trial)
+    public void setup() throws JsonProcessingException {
+        Show show = ShowFixtures.show(10, 0);
+        this.loaded = new VersionedShow(show, 1L, 0);
+        this.showRepository = new NoOpShowRepository(show);
+        this.showProfiler = new ShowProfiler();
+        this.pollingService = new PollingService();
+        this.pollingService.showRepository = this.showRepository;
+        this.pollingService.heartbeatBuffer = new HeartbeatBuffer();
+        this.pollingService.pollingResponses = new PollingResponses();
+        this.pollingService.pollingResponses.objectMapper = new ObjectMapper();
+        this.pollingService.pollingResponses.init();
+        this.vertx = Vertx.vertx();
+        //Quarkus creates one per request in both designs, so it is left out of the measurement
+        this.context = VertxContext.createNewDuplicatedContext(this.vertx.getOrCreateContext());
+    }
+
+    @TearDown(Level.Trial)
+    public void close() {
+        this.vertx.close();
+    }
+
+    @Benchmark
+    public Object perRequestInstances(Blackhole blackhole) {
+        ShowTokenFilter showTokenFilter = new ShowTokenFilter();
+        ShowContext showContext = new ShowContext();
+        showContext.setShow(this.loaded.show());
+        showContext.setVersion(this.loaded.version());
+        showContext.setFields(FIELDS);
+        ShowUnitOfWork unitOfWork = new ShowUnitOfWork();
+        unitOfWork.showContext = showContext;
+        unitOfWork.showRepository = this.showRepository;
+        unitOfWork.showProfiler = this.showProfiler;
+        PluginService pluginService = new PluginService();
+        pluginService.showContext = showContext;
+        pluginService.showRepository = this.showRepository;
+        pluginService.unitOfWork = unitOfWork;
+        pluginService.pollingService = this.pollingService;
+        //In the server the instances escape into the request context, so keep the JIT from scalar-replacing them
+        blackhole.consume(showTokenFilter);
+        blackhole.consume(pluginService);
+        //The response filter asked every request's unit of work whether it had changes
+        blackhole.consume(unitOfWork.isDirty());
+        return this.pollingService.viewerControlMode(pluginService.showContext.getShow());
+    }
+
+    @Benchmark
+    public Object stateless() {
+        RequestAttributes.show(this.context, this.loaded, FIELDS);
+        Show show = RequestAttributes.get(this.context, RequestAttributes.SHOW);
+        return this.pollingService.viewerControlMode(show);
+    }
+}
@@ -0,0 +1,137 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.remotefalcon.library.enums.ViewerControlMode;
+import com.remotefalcon.library.models.Preference;
+import com.remotefalcon.library.models.PsaSequence;
+import com.remotefalcon.library.models.Request;
+import com.remotefalcon.library.models.Sequence;
+import com.remotefalcon.library.models.SequenceGroup;
+import com.remotefalcon.library.models.Stat;
+import com.remotefalcon.library.models.Vote;
+import com.remotefalcon.library.quarkus.entity.Show;
+import com.remotefalcon.plugins.api.model.SyncPlaylistDetails;
+import com.remotefalcon.plugins.api.model.SyncPlaylistRequest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic shows for the benchmarks. Every tenth sequence is grouped (ten groups), every fiftieth is a PSA and a
+ * fifth of the sequences are hidden. Generation is seeded, so runs with the same parameters get the same show.
+ */
+final class ShowFixtures {
+    static final String SHOW_TOKEN = "benchmark";
+    private static final int GROUPS = 10;
+
+    private ShowFixtures() {
+    }
+
+    static Show show(int sequenceCount, int voteCount) {
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+
+        List<Sequence> sequences = new ArrayList<>();
+        for(int i = 0; i < sequenceCount; i++) {
+            sequences.add(Sequence.builder()
+                    .name("Sequence " + i)
+                    .displayName("Sequence " + i)
+                    .index(i)
+                    .order(i)
+                    .active(true)
+                    .visible(true)
+                    .visibilityCount(i % 5 == 0 ? random.nextInt(3) + 1 : 0)
+                    .duration(180)
+                    .imageUrl("")
+                    .type("SEQUENCE")
+                    .group(i % 10 == 9 ? "Group " + (i % GROUPS) : null)
+                    .build());
+        }
+
+        List<SequenceGroup> sequenceGroups = new ArrayList<>();
+        for(int i = 0; i < GROUPS; i++) {
+            sequenceGroups.add(SequenceGroup.builder()
+                    .name("Group " + i)
+                    .visibilityCount(i % 2)
+                    .build());
+        }
+
+        List<PsaSequence> psaSequences = new ArrayList<>();
+        for(int i = 0; i < sequenceCount; i += 50) {
+            psaSequences.add(PsaSequence.builder()
+                    .name("Sequence " + i)
+                    .order(psaSequences.size())
+                    .lastPlayed(now.minusMinutes(i))
+                    .build());
+        }
+
+        List<Vote> votes = new ArrayList<>();
+        for(int i = 0; i < voteCount && sequenceCount > 0; i++) {
+            votes.add(Vote.builder()
+                    .sequence(sequences.get(random.nextInt(sequenceCount)))
+                    .votes(random.nextInt(100))
+                    .lastVoteTime(now.minusSeconds(random.nextInt(3600)))
+                    .ownerVoted(false)
+                    .viewersVoted(new ArrayList<>())
+                    .build());
+        }
+
+        List<Request> requests = new ArrayList<>();
+        for(int i = 0; i < Math.min(sequenceCount, 50); i++) {
+            requests.add(Request.builder()
+                    .sequence(sequences.get(random.nextInt(sequenceCount)))
+                    .position(random.nextInt(1000))
+                    .ownerRequested(false)
+                    .build());
+        }
+
+        Show show = new Show();
+        show.setShowToken(SHOW_TOKEN);
+        show.setPlayingNow("Sequence 1");
+        show.setSequences(sequences);
+        show.setSequenceGroups(sequenceGroups);
+        show.setPsaSequences(psaSequences);
+        show.setVotes(votes);
+        show.setRequests(requests);
+        show.setStats(Stat.builder().votingWin(new ArrayList<>()).build());
+        show.setPreferences(Preference.builder()
+                .viewerControlMode(ViewerControlMode.VOTING)
+                .viewerControlEnabled(true)
+                .hideSequenceCount(3)
+                .sequencesPlayed(0)
+                .psaEnabled(true)
+                .managePsa(false)
+                .psaFrequency(5)
+                .resetVotes(false)
+                .build());
+        return show;
+    }
+
+    /**
+     * A sync that keeps most of the show's sequences, drops a few, reindexes some and adds new ones.
+     */
+    static SyncPlaylistRequest syncRequest(int sequenceCount) {
+        List<SyncPlaylistDetails> playlists = new ArrayList<>();
+        for(int i = 0; i < sequenceCount; i++) {
+            if(i % 20 == 3) {
+                continue;
+            }
+            playlists.add(SyncPlaylistDetails.builder()
+                    .playlistName("Sequence " + i)
+                    .playlistIndex(i % 7 == 0 ? i + 1 : i)
+                    .playlistDuration(180)
+                    .playlistType("SEQUENCE")
+                    .build());
+        }
+        for(int i = 0; i < Math.max(sequenceCount / 20, 1); i++) {
+            playlists.add(SyncPlaylistDetails.builder()
+                    .playlistName("New Sequence " + i)
+                    .playlistIndex(sequenceCount + i)
+                    .playlistDuration(180)
+                    .playlistType("SEQUENCE")
+                    .build());
+        }
+        return SyncPlaylistRequest.builder().playlists(playlists).build();
+    }
+}
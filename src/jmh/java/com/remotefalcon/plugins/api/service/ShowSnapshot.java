@@ -0,0 +1,90 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.remotefalcon.library.models.Preference;
+import com.remotefalcon.library.models.PsaSequence;
+import com.remotefalcon.library.models.Request;
+import com.remotefalcon.library.models.Sequence;
+import com.remotefalcon.library.models.SequenceGroup;
+import com.remotefalcon.library.models.Vote;
+import com.remotefalcon.library.quarkus.entity.Show;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The parts of a fixture show the benchmarked operations change, taken once per trial and put back before every
+ * operation. Restoring copies list references and scalar fields only, with no element built or serialized, so the
+ * show starts each operation in the same state without rebuilding it in a per-invocation setup; its cost is
+ * reported on its own by each benchmark's {@code restore} baseline.
+ */
+final class ShowSnapshot {
+    private final Show show;
+    private final List<Sequence> sequences;
+    private final List<SequenceGroup> sequenceGroups;
+    private final List<PsaSequence> psaSequences;
+    private final List<Vote> votes;
+    private final List<Request> requests;
+    private final Integer[] sequenceVisibilityCounts;
+    private final Integer[] sequenceIndexes;
+    private final Integer[] sequenceOrders;
+    private final Boolean[] sequencesActive;
+    private final Integer[] sequenceGroupVisibilityCounts;
+    private final LocalDateTime[] psaLastPlayed;
+    private final String playingNow;
+    private final String playingNext;
+    private final String playingNextFromSchedule;
+    private final Integer sequencesPlayed;
+    private final Boolean psaEnabled;
+    private final Boolean viewerControlEnabled;
+
+    ShowSnapshot(Show show) {
+        this.show = show;
+        this.sequences = List.copyOf(show.getSequences());
+        this.sequenceGroups = List.copyOf(show.getSequenceGroups());
+        this.psaSequences = List.copyOf(show.getPsaSequences());
+        this.votes = List.copyOf(show.getVotes());
+        this.requests = List.copyOf(show.getRequests());
+        this.sequenceVisibilityCounts = this.sequences.stream().map(Sequence::getVisibilityCount).toArray(Integer[]::new);
+        this.sequenceIndexes = this.sequences.stream().map(Sequence::getIndex).toArray(Integer[]::new);
+        this.sequenceOrders = this.sequences.stream().map(Sequence::getOrder).toArray(Integer[]::new);
+        this.sequencesActive = this.sequences.stream().map(Sequence::getActive).toArray(Boolean[]::new);
+        this.sequenceGroupVisibilityCounts = this.sequenceGroups.stream().map(SequenceGroup::getVisibilityCount).toArray(Integer[]::new);
+        this.psaLastPlayed = this.psaSequences.stream().map(PsaSequence::getLastPlayed).toArray(LocalDateTime[]::new);
+        this.playingNow = show.getPlayingNow();
+        this.playingNext = show.getPlayingNext();
+        this.playingNextFromSchedule = show.getPlayingNextFromSchedule();
+        this.sequencesPlayed = show.getPreferences().getSequencesPlayed();
+        this.psaEnabled = show.getPreferences().getPsaEnabled();
+        this.viewerControlEnabled = show.getPreferences().getViewerControlEnabled();
+    }
+
+    Show restore() {
+        for(int i = 0; i < this.sequences.size(); i++) {
+            Sequence sequence = this.sequences.get(i);
+            sequence.setVisibilityCount(this.sequenceVisibilityCounts[i]);
+            sequence.setIndex(this.sequenceIndexes[i]);
+            sequence.setOrder(this.sequenceOrders[i]);
+            sequence.setActive(this.sequencesActive[i]);
+        }
+        for(int i = 0; i < this.sequenceGroups.size(); i++) {
+            this.sequenceGroups.get(i).setVisibilityCount(this.sequenceGroupVisibilityCounts[i]);
+        }
+        for(int i = 0; i < this.psaSequences.size(); i++) {
+            this.psaSequences.get(i).setLastPlayed(this.psaLastPlayed[i]);
+        }
+        this.show.setSequences(new ArrayList<>(this.sequences));
+        this.show.setSequenceGroups(new ArrayList<>(this.sequenceGroups));
+        this.show.setPsaSequences(new ArrayList<>(this.psaSequences));
+        this.show.setVotes(new ArrayList<>(this.votes));
+        this.show.setRequests(new ArrayList<>(this.requests));
+        this.show.setPlayingNow(this.playingNow);
+        this.show.setPlayingNext(this.playingNext);
+        this.show.setPlayingNextFromSchedule(this.playingNextFromSchedule);
+        Preference preferences = this.show.getPreferences();
+        preferences.setSequencesPlayed(this.sequencesPlayed);
+        preferences.setPsaEnabled(this.psaEnabled);
+        preferences.setViewerControlEnabled(this.viewerControlEnabled);
+        return this.show;
+    }
+}
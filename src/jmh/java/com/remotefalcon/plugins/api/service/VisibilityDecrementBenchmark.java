@@ -0,0 +1,112 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.remotefalcon.library.models.Sequence;
+import com.remotefalcon.library.models.SequenceGroup;
+import com.remotefalcon.library.quarkus.entity.Show;
+import com.remotefalcon.plugins.api.repository.ShowUpdate;
+import org.bson.BsonDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * The visibility count-down of updateWhatsPlaying, from the loaded show to the encoded update document.
+ * {@link #wholeArrays} is the previous approach of scanning and rewriting both arrays and is kept as the baseline
+ * for {@link #hiddenOnly}, which only visits the hidden entries tracked by {@link SequenceIndex}; compare the
+ * scores and the {@code gc.alloc.rate.norm} of the two across catalog sizes.
+ * <p>
+ * Both count the show down, so each operation first puts back the counts of the hidden entries and marks them
+ * hidden in the index again. That touches the same entries for both variants; {@link #restore} measures it alone.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class VisibilityDecrementBenchmark {
+    @Param({"10", "200", "2000"})
+    int sequences;
+
+    private Show show;
+    private SequenceIndex sequenceIndex;
+    private int[] hiddenSequences;
+    private int[] hiddenSequenceCounts;
+    private int[] hiddenSequenceGroups;
+    private int[] hiddenSequenceGroupCounts;
+
+    @Setup(Level.Trial)
+    public void show() {
+        this.show = ShowFixtures.show(this.sequences, 0);
+        //updateWhatsPlaying builds the index for its lookups anyway
+        this.sequenceIndex = new SequenceIndex(this.show);
+        List<Sequence> sequences = this.show.getSequences();
+        this.hiddenSequences = IntStream.range(0, sequences.size())
+                .filter(i -> sequences.get(i).getVisibilityCount() > 0)
+                .toArray();
+        this.hiddenSequenceCounts = Arrays.stream(this.hiddenSequences)
+                .map(i -> sequences.get(i).getVisibilityCount())
+                .toArray();
+        List<SequenceGroup> sequenceGroups = this.show.getSequenceGroups();
+        this.hiddenSequenceGroups = IntStream.range(0, sequenceGroups.size())
+                .filter(i -> sequenceGroups.get(i).getVisibilityCount() > 0)
+                .toArray();
+        this.hiddenSequenceGroupCounts = Arrays.stream(this.hiddenSequenceGroups)
+                .map(i -> sequenceGroups.get(i).getVisibilityCount())
+                .toArray();
+    }
+
+    @Benchmark
+    public SequenceIndex restore() {
+        for(int i = 0; i < this.hiddenSequences.length; i++) {
+            this.show.getSequences().get(this.hiddenSequences[i]).setVisibilityCount(this.hiddenSequenceCounts[i]);
+            this.sequenceIndex.sequenceHidden(this.hiddenSequences[i]);
+        }
+        for(int i = 0; i < this.hiddenSequenceGroups.length; i++) {
+            this.show.getSequenceGroups().get(this.hiddenSequenceGroups[i]).setVisibilityCount(this.hiddenSequenceGroupCounts[i]);
+            this.sequenceIndex.sequenceGroupHidden(this.hiddenSequenceGroups[i]);
+        }
+        return this.sequenceIndex;
+    }
+
+    @Benchmark
+    public BsonDocument wholeArrays() {
+        this.restore();
+        this.show.getSequences().forEach(sequence -> {
+            if(sequence.getVisibilityCount() > 0) {
+                sequence.setVisibilityCount(sequence.getVisibilityCount() - 1);
+            }
+        });
+        this.show.getSequenceGroups().forEach(sequenceGroup -> {
+            if(sequenceGroup.getVisibilityCount() > 0) {
+                sequenceGroup.setVisibilityCount(sequenceGroup.getVisibilityCount() - 1);
+            }
+        });
+        ShowUpdate update = new ShowUpdate()
+                .set("sequences", this.show.getSequences())
+                .set("sequenceGroups", this.show.getSequenceGroups());
+        return NoOpShowRepository.encode(update);
+    }
+
+    @Benchmark
+    public BsonDocument hiddenOnly() {
+        this.restore();
+        ShowUpdate update = new ShowUpdate();
+        PluginService.decrementVisibilityCounts(this.sequenceIndex, update);
+        return NoOpShowRepository.encode(update);
+    }
+}
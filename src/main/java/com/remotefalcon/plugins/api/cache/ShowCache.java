@@ -0,0 +1,146 @@
+package com.remotefalcon.plugins.api.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.remotefalcon.library.quarkus.entity.Show;
+import com.remotefalcon.plugins.api.repository.ShowRepository;
+import com.remotefalcon.plugins.api.repository.ShowUpdate;
+import com.remotefalcon.plugins.api.repository.VersionedShow;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, TTL-limited cache of shows by token for read-only endpoints. Entries hold only {@link #CACHED_FIELDS}
+ * and are shared between requests, so callers must never mutate them.
+ * <p>
+ * The cache is only served from while {@link ShowChangeStream} is connected. Any show write that changes one of
+ * the cached fields (from this instance or from the viewer side) evicts the entry. Without the change stream
+ * there is no such guarantee, so lookups fall through to Mongo until it reconnects.
+ */
+@ApplicationScoped
+public class ShowCache {
+    public static final String[] CACHED_FIELDS = {"preferences", "showSubdomain", "requests"};
+
+    @Inject
+    ShowRepository showRepository;
+
+    @ConfigProperty(name = "show.cache.maximum-size")
+    long maximumSize;
+
+    @ConfigProperty(name = "show.cache.expire-after-write")
+    Duration expireAfterWrite;
+
+    private Cache<String, Show> shows;
+
+    //Loads in flight by token, dropped when the show is invalidated so the load can't cache what it read
+    private final ConcurrentHashMap<String, Long> loads = new ConcurrentHashMap<>();
+    private final AtomicLong loadIds = new AtomicLong();
+
+    private volatile boolean active;
+
+    @PostConstruct
+    void init() {
+        this.shows = Caffeine.newBuilder()
+                .maximumSize(this.maximumSize)
+                .expireAfterWrite(this.expireAfterWrite)
+                .build();
+    }
+
+    public boolean isActive() {
+        return this.active;
+    }
+
+    /**
+     * Returns the cached show, loading and caching it on a miss. The load runs outside the cache's own locking:
+     * Caffeine computes entries inside a synchronized map bin, and blocking on Mongo there would pin the carrier
+     * of a virtual thread.
+     */
+    public Optional<Show> get(String showToken) {
+        Optional<Show> show = this.getIfPresent(showToken);
+        if(show.isPresent()) {
+            return show;
+        }
+        long load = this.startLoad(showToken);
+        try {
+            show = this.showRepository.findVersionedByShowToken(showToken, CACHED_FIELDS).map(VersionedShow::show);
+            show.ifPresent(loadedShow -> this.put(showToken, loadedShow, load));
+            return show;
+        }finally {
+            this.endLoad(showToken, load);
+        }
+    }
+
+    public Optional<Show> getIfPresent(String showToken) {
+        return Optional.ofNullable(this.shows.getIfPresent(showToken));
+    }
+
+    /**
+     * Registers a load of the show by a caller that loads it outside the cache, before it reads from Mongo. The
+     * returned id is handed to {@link #put} with the loaded show, and to {@link #endLoad} once the load is over.
+     * A later load of the same show supersedes this one.
+     */
+    public long startLoad(String showToken) {
+        long load = this.loadIds.incrementAndGet();
+        this.loads.put(showToken, load);
+        return load;
+    }
+
+    /**
+     * Caches a show loaded outside the cache, unless that show was invalidated since the load started, in which
+     * case it may already be stale. The check and the put run atomically against {@link #invalidate} of the same
+     * token, so only writes to this show can turn the load away.
+     */
+    public void put(String showToken, Show show, long load) {
+        this.shows.asMap().compute(showToken, (token, cached) -> this.loads.remove(token, load) ? show : cached);
+    }
+
+    public void endLoad(String showToken, long load) {
+        this.loads.remove(showToken, load);
+    }
+
+    public void invalidate(String showToken) {
+        this.shows.asMap().compute(showToken, (token, cached) -> {
+            this.loads.remove(token);
+            return null;
+        });
+    }
+
+    /**
+     * Evicts the show if the update changes one of the {@link #CACHED_FIELDS}.
+     */
+    public void invalidate(String showToken, ShowUpdate update) {
+        if(changesCachedField(update)) {
+            this.invalidate(showToken);
+        }
+    }
+
+    private static boolean changesCachedField(ShowUpdate update) {
+        for(String field : CACHED_FIELDS) {
+            if(update.touches(field)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void invalidateAll() {
+        this.loads.clear();
+        this.shows.invalidateAll();
+    }
+
+    void activate() {
+        this.active = true;
+    }
+
+    void deactivate() {
+        this.active = false;
+        this.invalidateAll();
+    }
+}
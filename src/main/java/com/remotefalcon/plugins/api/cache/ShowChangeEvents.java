@@ -0,0 +1,74 @@
+package com.remotefalcon.plugins.api.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * In-process notifications that a top-level field of a show changed, fed by {@link ShowChangeStream}, so long-poll
+ * endpoints can wait for a request or vote instead of polling Mongo. Notifications are only delivered while the
+ * change stream is connected. When it drops, every waiter is released so callers answer straight away.
+ * <p>
+ * A waiter nobody asked for within twice {@code long-poll.timeout} is dropped: every long-poll that could still be
+ * waiting on it has timed out, so a show that stops changing doesn't keep its waiters forever.
+ */
+@ApplicationScoped
+public class ShowChangeEvents {
+    @ConfigProperty(name = "long-poll.timeout")
+    Duration longPollTimeout;
+
+    private Cache<String, CompletableFuture<Void>> waiters;
+
+    private volatile boolean active;
+
+    @PostConstruct
+    void init() {
+        this.waiters = Caffeine.newBuilder()
+                .expireAfterAccess(this.longPollTimeout.multipliedBy(2))
+                .scheduler(Scheduler.systemScheduler())
+                .build();
+    }
+
+    public boolean isActive() {
+        return this.active;
+    }
+
+    /**
+     * Completes the next time {@code field} of the show changes. Callers get it before reading the field, so a
+     * change between the read and the wait can't be missed. Waiters for the same show and field share a future.
+     */
+    public CompletableFuture<Void> next(String showToken, String field) {
+        return this.waiters.get(key(showToken, field), key -> new CompletableFuture<>());
+    }
+
+    void publish(String showToken, String field) {
+        CompletableFuture<Void> waiter = this.waiters.asMap().remove(key(showToken, field));
+        if(waiter != null) {
+            waiter.complete(null);
+        }
+    }
+
+    void activate() {
+        this.active = true;
+    }
+
+    void deactivate() {
+        this.active = false;
+        this.waiters.asMap().keySet().forEach(key -> {
+            CompletableFuture<Void> waiter = this.waiters.asMap().remove(key);
+            if(waiter != null) {
+                waiter.complete(null);
+            }
+        });
+    }
+
+    private static String key(String showToken, String field) {
+        return showToken + '\u0000' + field;
+    }
+}
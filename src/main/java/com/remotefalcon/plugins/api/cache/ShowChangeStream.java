@@ -0,0 +1,170 @@
+package com.remotefalcon.plugins.api.cache;
+
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.remotefalcon.plugins.api.repository.ShowRepository;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tails a change stream on the shows collection and evicts changed shows from {@link ShowCache} and
+ * {@link UnknownShowTokens}. It also notifies {@link ShowChangeEvents} when a show's requests or votes change.
+ * Only the show token and the names of the changed top-level fields are sent back for each change: Mongo looks the
+ * updated document up, but the projection drops everything else from it. Updates that change no cached field leave
+ * the show cache alone. Deletes (which carry no token), updates of a document deleted since, and lost connections
+ * clear the whole show cache.
+ */
+@ApplicationScoped
+public class ShowChangeStream {
+    private static final Logger LOG = Logger.getLogger(ShowChangeStream.class);
+    private static final long RECONNECT_DELAY_MILLIS = 5000;
+    private static final List<String> PUBLISHED_FIELDS = List.of("requests", "votes");
+
+    @Inject
+    ShowRepository showRepository;
+
+    @Inject
+    ShowCache showCache;
+
+    @Inject
+    UnknownShowTokens unknownShowTokens;
+
+    @Inject
+    ShowChangeEvents showChangeEvents;
+
+    @ConfigProperty(name = "show.cache.change-stream.enabled")
+    boolean enabled;
+
+    private volatile boolean running;
+    private volatile MongoCursor<BsonDocument> cursor;
+
+    void onStart(@Observes StartupEvent event) {
+        if(!this.enabled) {
+            LOG.info("Show change stream disabled, show cache will not be used");
+            return;
+        }
+        this.running = true;
+        Thread.ofPlatform().daemon().name("show-change-stream").start(this::run);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        this.running = false;
+        MongoCursor<BsonDocument> openCursor = this.cursor;
+        if(openCursor != null) {
+            openCursor.close();
+        }
+    }
+
+    private void run() {
+        while(this.running) {
+            try {
+                this.watch();
+            }catch (RuntimeException e) {
+                if(this.running) {
+                    LOG.warnf(e, "Show change stream failed, reconnecting in %d ms", RECONNECT_DELAY_MILLIS);
+                }
+            }finally {
+                this.showCache.deactivate();
+                this.showChangeEvents.deactivate();
+            }
+            this.sleepBeforeReconnect();
+        }
+    }
+
+    private void watch() {
+        List<Bson> pipeline = List.of(
+                Aggregates.match(Filters.in("operationType", List.of("insert", "update", "replace", "delete"))),
+                Aggregates.project(Projections.fields(
+                        Projections.include("operationType"),
+                        Projections.computed("showToken", "$fullDocument.showToken"),
+                        Projections.computed("changedFields", changedFields()))));
+        try (MongoCursor<BsonDocument> changes = this.showRepository.mongoCollection()
+                .watch(pipeline)
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .withDocumentClass(BsonDocument.class)
+                .iterator()) {
+            this.cursor = changes;
+            this.showCache.activate();
+            this.showChangeEvents.activate();
+            while(this.running && changes.hasNext()) {
+                this.onChange(changes.next());
+            }
+        }finally {
+            this.cursor = null;
+        }
+    }
+
+    private void onChange(BsonDocument change) {
+        String operationType = change.getString("operationType").getValue();
+        if(!change.isString("showToken")) {
+            this.showCache.invalidateAll();
+            return;
+        }
+        String showToken = change.getString("showToken").getValue();
+        //Inserts, replaces and deletes carry no update description, treat every field as changed
+        List<String> changedFields = "update".equals(operationType) ? changedFields(change) : null;
+        if(changedFields == null || Arrays.stream(ShowCache.CACHED_FIELDS).anyMatch(changedFields::contains)) {
+            this.showCache.invalidate(showToken);
+        }
+        this.unknownShowTokens.remove(showToken);
+        for(String field : PUBLISHED_FIELDS) {
+            if(changedFields == null || changedFields.contains(field)) {
+                this.showChangeEvents.publish(showToken, field);
+            }
+        }
+    }
+
+    private static List<String> changedFields(BsonDocument change) {
+        BsonArray fields = change.getArray("changedFields", null);
+        if(fields == null) {
+            return null;
+        }
+        return fields.stream().filter(BsonValue::isString).map(field -> field.asString().getValue()).toList();
+    }
+
+    /**
+     * The top-level names of the fields an update set, removed or truncated, e.g. {@code requests} for
+     * {@code requests.2.position}.
+     */
+    private static Document changedFields() {
+        Document updatedPaths = new Document("$map", new Document()
+                .append("input", new Document("$objectToArray",
+                        new Document("$ifNull", List.of("$updateDescription.updatedFields", new Document()))))
+                .append("as", "f")
+                .append("in", "$$f.k"));
+        Document removedPaths = new Document("$ifNull", List.of("$updateDescription.removedFields", List.of()));
+        Document truncatedPaths = new Document("$ifNull", List.of("$updateDescription.truncatedArrays.field", List.of()));
+        return new Document("$map", new Document()
+                .append("input", new Document("$concatArrays", List.of(updatedPaths, removedPaths, truncatedPaths)))
+                .append("as", "path")
+                .append("in", new Document("$arrayElemAt", List.of(new Document("$split", List.of("$$path", ".")), 0))));
+    }
+
+    private void sleepBeforeReconnect() {
+        if(!this.running) {
+            return;
+        }
+        try {
+            Thread.sleep(RECONNECT_DELAY_MILLIS);
+        }catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            this.running = false;
+        }
+    }
+}
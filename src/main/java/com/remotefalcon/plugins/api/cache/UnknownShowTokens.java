@@ -0,0 +1,45 @@
+package com.remotefalcon.plugins.api.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+
+/**
+ * Bounded, time-expiring set of show tokens that recently matched no show, so misconfigured plugins that keep
+ * polling with a bad token are turned away without a Mongo lookup. {@link ShowChangeStream} removes a token as
+ * soon as a show with that token is written.
+ */
+@ApplicationScoped
+public class UnknownShowTokens {
+    @ConfigProperty(name = "show.unknown-token.maximum-size")
+    long maximumSize;
+
+    @ConfigProperty(name = "show.unknown-token.expire-after-write")
+    Duration expireAfterWrite;
+
+    private Cache<String, Boolean> tokens;
+
+    @PostConstruct
+    void init() {
+        this.tokens = Caffeine.newBuilder()
+                .maximumSize(this.maximumSize)
+                .expireAfterWrite(this.expireAfterWrite)
+                .build();
+    }
+
+    public boolean contains(String showToken) {
+        return this.tokens.getIfPresent(showToken) != null;
+    }
+
+    public void add(String showToken) {
+        this.tokens.put(showToken, Boolean.TRUE);
+    }
+
+    public void remove(String showToken) {
+        this.tokens.invalidate(showToken);
+    }
+}
@@ -0,0 +1,80 @@
+package com.remotefalcon.plugins.api.context;
+
+import com.remotefalcon.library.quarkus.entity.Show;
+import com.remotefalcon.plugins.api.repository.VersionedShow;
+import io.smallrye.common.vertx.VertxContext;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+
+/**
+ * Per-request state kept as locals of the request's duplicated Vert.x context rather than in {@code @RequestScoped}
+ * beans, so the polling endpoints find their show without creating contextual instances or calling through client
+ * proxies. The context follows the request onto worker and virtual threads. Reads anywhere else (startup, the
+ * scheduler, Mongo driver threads) return null.
+ */
+public final class RequestAttributes {
+    public static final String METRICS = "remotefalcon.metrics";
+    public static final String UNIT_OF_WORK = "remotefalcon.unitOfWork";
+    public static final String SHOW = "remotefalcon.show";
+    public static final String VERSION = "remotefalcon.showVersion";
+    public static final String FIELDS = "remotefalcon.showFields";
+
+    private RequestAttributes() {
+    }
+
+    /**
+     * Sets the show the token filter resolved for the request running on this thread, with the fields it was
+     * loaded with.
+     */
+    public static void show(VersionedShow show, String[] fields) {
+        show(current(), show, fields);
+    }
+
+    /**
+     * Like {@link #show(VersionedShow, String[])}, for a request whose context was captured before switching threads.
+     */
+    public static void show(Context context, VersionedShow show, String[] fields) {
+        set(context, SHOW, show.show());
+        set(context, VERSION, show.version());
+        set(context, FIELDS, fields);
+    }
+
+    public static Show show() {
+        return get(SHOW);
+    }
+
+    public static Long version() {
+        return get(VERSION);
+    }
+
+    public static String[] fields() {
+        return get(FIELDS);
+    }
+
+    public static <T> T get(String name) {
+        return get(current(), name);
+    }
+
+    public static <T> T get(Context context, String name) {
+        return context == null ? null : context.getLocal(name);
+    }
+
+    public static void set(String name, Object value) {
+        set(current(), name, value);
+    }
+
+    private static void set(Context context, String name, Object value) {
+        if(context != null) {
+            context.putLocal(name, value);
+        }
+    }
+
+    /**
+     * The duplicated context of the request running on this thread, or null. Locals of a root context would be
+     * shared by every request on its event loop.
+     */
+    public static Context current() {
+        Context context = Vertx.currentContext();
+        return context != null && VertxContext.isDuplicatedContext(context) ? context : null;
+    }
+}
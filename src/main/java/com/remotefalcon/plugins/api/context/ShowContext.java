@@ -1,13 +1,29 @@
 package com.remotefalcon.plugins.api.context;
 
 import com.remotefalcon.library.quarkus.entity.Show;
+import jakarta.annotation.PostConstruct;
 import jakarta.enterprise.context.RequestScoped;
 import lombok.Getter;
 import lombok.Setter;
 
+/**
+ * The show of a request for the services that reload and re-resolve it while they run. It starts out as the show
+ * the token filter put in {@link RequestAttributes}, and is only created for the endpoints that use it.
+ */
 @RequestScoped
 @Getter
 @Setter
 public class ShowContext {
     private Show show;
-}
\ No newline at end of file
+    //Version the show was loaded at, null for cached shows or shows never written with one
+    private Long version;
+    //Fields the show was loaded with, null when it was loaded whole
+    private String[] fields;
+
+    @PostConstruct
+    void init() {
+        this.show = RequestAttributes.show();
+        this.version = RequestAttributes.version();
+        this.fields = RequestAttributes.fields();
+    }
+}
@@ -1,42 +1,79 @@
 package com.remotefalcon.plugins.api.controller;
 
+import com.remotefalcon.plugins.api.context.RequestAttributes;
+import com.remotefalcon.plugins.api.filters.ShowProjection;
 import com.remotefalcon.plugins.api.model.*;
 import com.remotefalcon.plugins.api.service.PluginService;
+import com.remotefalcon.plugins.api.service.PollingService;
+import com.remotefalcon.plugins.api.service.ReactivePluginService;
+import io.quarkus.arc.properties.UnlessBuildProperty;
+import io.smallrye.common.annotation.RunOnVirtualThread;
+import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
 import jakarta.json.Json;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 
+import java.io.InputStream;
+
+/**
+ * The plugin endpoints on the default blocking stack. They run on virtual threads when
+ * {@code quarkus.virtual-threads.enabled} is set (env {@code VIRTUAL_THREADS_ENABLED}), and on worker threads
+ * otherwise; {@link com.remotefalcon.plugins.api.filters.ShowTokenFilter} runs on the same thread as the endpoint.
+ * Polls that don't read-modify-write the show are answered by the stateless {@link PollingService}, with the show
+ * from {@link RequestAttributes}. Long-polls return a {@link Uni} from {@link ReactivePluginService}, so the thread is
+ * released while they wait for a change instead of being held for up to {@code long-poll.timeout}.
+ */
 @Path("/")
+@RunOnVirtualThread
+@UnlessBuildProperty(name = "plugins.stack", stringValue = "reactive", enableIfMissing = true)
 public class PluginController {
 
     @Inject
     PluginService pluginService;
 
+    @Inject
+    PollingService pollingService;
+
+    @Inject
+    ReactivePluginService reactivePluginService;
+
     @GET
     @Path("/nextPlaylistInQueue")
+    @ShowProjection({})
+    @Produces(MediaType.APPLICATION_JSON)
+    public byte[] nextPlaylistInQueue() {
+        return this.pollingService.nextPlaylistInQueue(RequestAttributes.show());
+    }
+
+    @GET
+    @Path("/awaitNextPlaylistInQueue")
+    @ShowProjection({})
     @Produces(MediaType.APPLICATION_JSON)
-    public NextPlaylistResponse nextPlaylistInQueue() {
-        return this.pluginService.nextPlaylistInQueue();
+    public Uni<NextPlaylistResponse> awaitNextPlaylistInQueue() {
+        return this.reactivePluginService.awaitNextPlaylistInQueue(RequestAttributes.show());
     }
 
     @POST
     @Path("/updatePlaylistQueue")
+    @ShowProjection(value = "requests", cached = true)
     @Produces(MediaType.APPLICATION_JSON)
-    public PluginResponse updatePlaylistQueue() {
-        return this.pluginService.updatePlaylistQueue();
+    public byte[] updatePlaylistQueue() {
+        return this.pollingService.updatePlaylistQueue(RequestAttributes.show());
     }
 
     @POST
     @Path("/syncPlaylists")
+    @ShowProjection({})
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
-    public PluginResponse syncPlaylists(SyncPlaylistRequest request) {
-        return this.pluginService.syncPlaylists(request);
+    public PluginResponse syncPlaylists(InputStream body) {
+        return this.pluginService.syncPlaylists(body);
     }
 
     @POST
     @Path("/updateWhatsPlaying")
+    @ShowProjection({"preferences", "sequences", "sequenceGroups", "psaSequences", "requests", "votes"})
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
     public PluginResponse updateWhatsPlaying(UpdateWhatsPlayingRequest request) {
@@ -45,6 +82,7 @@ public class PluginController {
 
     @POST
     @Path("/updateNextScheduledSequence")
+    @ShowProjection("preferences")
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
     public PluginResponse updateNextScheduledSequence(UpdateNextScheduledRequest request) {
@@ -53,35 +91,48 @@ public class PluginController {
 
     @GET
     @Path("/viewerControlMode")
+    @ShowProjection(value = "preferences", cached = true)
     @Produces(MediaType.APPLICATION_JSON)
-    public PluginResponse viewerControlMode() {
-        return this.pluginService.viewerControlMode();
+    public byte[] viewerControlMode() {
+        return this.pollingService.viewerControlMode(RequestAttributes.show());
     }
 
     @GET
     @Path("/highestVotedPlaylist")
+    @ShowProjection({"votes", "sequences", "sequenceGroups", "psaSequences", "preferences", "playingNow"})
     @Produces(MediaType.APPLICATION_JSON)
     public HighestVotedPlaylistResponse highestVotedPlaylist() {
         return this.pluginService.highestVotedPlaylist();
     }
 
+    @GET
+    @Path("/awaitHighestVotedPlaylist")
+    @ShowProjection({})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Uni<HighestVotedPlaylistResponse> awaitHighestVotedPlaylist() {
+        return this.reactivePluginService.awaitHighestVotedPlaylist(RequestAttributes.show());
+    }
+
     @POST
     @Path("/pluginVersion")
+    @ShowProjection({})
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
-    public PluginResponse pluginVersion(PluginVersion request) {
-        return this.pluginService.pluginVersion(request);
+    public byte[] pluginVersion(PluginVersion request) {
+        return this.pollingService.pluginVersion(RequestAttributes.show(), request);
     }
 
     @GET
     @Path("/remotePreferences")
+    @ShowProjection(value = {"preferences", "showSubdomain"}, cached = true)
     @Produces(MediaType.APPLICATION_JSON)
-    public RemotePreferenceResponse remotePreferences() {
-        return this.pluginService.remotePreferences();
+    public byte[] remotePreferences() {
+        return this.pollingService.remotePreferences(RequestAttributes.show());
     }
 
     @DELETE
     @Path("/purgeQueue")
+    @ShowProjection({})
     @Produces(MediaType.APPLICATION_JSON)
     public PluginResponse purgeQueue() {
         return this.pluginService.purgeQueue();
@@ -89,6 +140,7 @@ public class PluginController {
 
     @DELETE
     @Path("/resetAllVotes")
+    @ShowProjection({})
     @Produces(MediaType.APPLICATION_JSON)
     public PluginResponse resetAllVotes() {
         return this.pluginService.resetAllVotes();
@@ -96,6 +148,7 @@ public class PluginController {
 
     @POST
     @Path("/toggleViewerControl")
+    @ShowProjection("preferences")
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
     public PluginResponse toggleViewerControl() {
@@ -104,6 +157,7 @@ public class PluginController {
 
     @POST
     @Path("/updateViewerControl")
+    @ShowProjection("preferences")
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
     public PluginResponse updateViewerControl(ViewerControlRequest request) {
@@ -112,22 +166,34 @@ public class PluginController {
 
     @POST
     @Path("/updateManagedPsa")
+    @ShowProjection("preferences")
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
     public PluginResponse updateManagedPsa(ManagedPSARequest request) {
         return this.pluginService.updateManagedPsa(request);
     }
 
+    @POST
+    @Path("/batch")
+    @ShowProjection({"preferences", "sequences", "sequenceGroups", "psaSequences", "requests", "votes", "playingNow"})
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    public BatchResponse batch(BatchRequest request) {
+        return this.pluginService.batch(request);
+    }
+
     @POST
     @Path("/fppHeartbeat")
+    @ShowProjection({})
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
     public void fppHeartbeat() {
-        this.pluginService.fppHeartbeat();
+        this.pollingService.fppHeartbeat(RequestAttributes.show());
     }
 
     @GET
     @Path("/actuator/health")
+    @ShowProjection(value = {}, rateLimited = false)
     @Produces(MediaType.APPLICATION_JSON)
     @Consumes(MediaType.APPLICATION_JSON)
     public Health health() {
@@ -0,0 +1,207 @@
+package com.remotefalcon.plugins.api.controller;
+
+import com.remotefalcon.plugins.api.context.RequestAttributes;
+import com.remotefalcon.plugins.api.filters.ShowProjection;
+import com.remotefalcon.plugins.api.model.*;
+import com.remotefalcon.plugins.api.service.PluginService;
+import com.remotefalcon.plugins.api.service.PollingService;
+import com.remotefalcon.plugins.api.service.ReactivePluginService;
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.smallrye.common.annotation.NonBlocking;
+import io.smallrye.mutiny.Uni;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+
+import java.io.InputStream;
+
+/**
+ * The plugin endpoints on the reactive stack, enabled by building with {@code plugins.stack=reactive}. The polling
+ * endpoints run on the event loop: the two that touch Mongo go through {@link ReactivePluginService}, the others
+ * only read the show loaded by the filter or buffer in memory through {@link PollingService}. Both are handed the
+ * show from {@link RequestAttributes}. Endpoints FPP calls rarely keep the blocking {@link PluginService} and run
+ * on worker threads.
+ */
+@Path("/")
+@IfBuildProperty(name = "plugins.stack", stringValue = "reactive")
+public class ReactivePluginController {
+
+    @Inject
+    PluginService pluginService;
+
+    @Inject
+    PollingService pollingService;
+
+    @Inject
+    ReactivePluginService reactivePluginService;
+
+    @GET
+    @Path("/nextPlaylistInQueue")
+    @ShowProjection({})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Uni<byte[]> nextPlaylistInQueue() {
+        return this.reactivePluginService.nextPlaylistInQueue(RequestAttributes.show());
+    }
+
+    @GET
+    @Path("/awaitNextPlaylistInQueue")
+    @ShowProjection({})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Uni<NextPlaylistResponse> awaitNextPlaylistInQueue() {
+        return this.reactivePluginService.awaitNextPlaylistInQueue(RequestAttributes.show());
+    }
+
+    @POST
+    @Path("/updatePlaylistQueue")
+    @ShowProjection(value = "requests", cached = true)
+    @Produces(MediaType.APPLICATION_JSON)
+    @NonBlocking
+    public byte[] updatePlaylistQueue() {
+        return this.pollingService.updatePlaylistQueue(RequestAttributes.show());
+    }
+
+    @POST
+    @Path("/syncPlaylists")
+    @ShowProjection({})
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    public PluginResponse syncPlaylists(InputStream body) {
+        return this.pluginService.syncPlaylists(body);
+    }
+
+    @POST
+    @Path("/updateWhatsPlaying")
+    @ShowProjection({"preferences", "sequences", "sequenceGroups", "psaSequences", "requests", "votes"})
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    public PluginResponse updateWhatsPlaying(UpdateWhatsPlayingRequest request) {
+        return this.pluginService.updateWhatsPlaying(request);
+    }
+
+    @POST
+    @Path("/updateNextScheduledSequence")
+    @ShowProjection("preferences")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    public PluginResponse updateNextScheduledSequence(UpdateNextScheduledRequest request) {
+        return this.pluginService.updateNextScheduledSequence(request);
+    }
+
+    @GET
+    @Path("/viewerControlMode")
+    @ShowProjection(value = "preferences", cached = true)
+    @Produces(MediaType.APPLICATION_JSON)
+    @NonBlocking
+    public byte[] viewerControlMode() {
+        return this.pollingService.viewerControlMode(RequestAttributes.show());
+    }
+
+    @GET
+    @Path("/highestVotedPlaylist")
+    @ShowProjection({"votes", "sequences", "sequenceGroups", "psaSequences", "preferences", "playingNow"})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Uni<HighestVotedPlaylistResponse> highestVotedPlaylist() {
+        return this.reactivePluginService.highestVotedPlaylist(RequestAttributes.show(), RequestAttributes.version());
+    }
+
+    @GET
+    @Path("/awaitHighestVotedPlaylist")
+    @ShowProjection({})
+    @Produces(MediaType.APPLICATION_JSON)
+    public Uni<HighestVotedPlaylistResponse> awaitHighestVotedPlaylist() {
+        return this.reactivePluginService.awaitHighestVotedPlaylist(RequestAttributes.show());
+    }
+
+    @POST
+    @Path("/pluginVersion")
+    @ShowProjection({})
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @NonBlocking
+    public byte[] pluginVersion(PluginVersion request) {
+        return this.pollingService.pluginVersion(RequestAttributes.show(), request);
+    }
+
+    @GET
+    @Path("/remotePreferences")
+    @ShowProjection(value = {"preferences", "showSubdomain"}, cached = true)
+    @Produces(MediaType.APPLICATION_JSON)
+    @NonBlocking
+    public byte[] remotePreferences() {
+        return this.pollingService.remotePreferences(RequestAttributes.show());
+    }
+
+    @DELETE
+    @Path("/purgeQueue")
+    @ShowProjection({})
+    @Produces(MediaType.APPLICATION_JSON)
+    public PluginResponse purgeQueue() {
+        return this.pluginService.purgeQueue();
+    }
+
+    @DELETE
+    @Path("/resetAllVotes")
+    @ShowProjection({})
+    @Produces(MediaType.APPLICATION_JSON)
+    public PluginResponse resetAllVotes() {
+        return this.pluginService.resetAllVotes();
+    }
+
+    @POST
+    @Path("/toggleViewerControl")
+    @ShowProjection("preferences")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    public PluginResponse toggleViewerControl() {
+        return this.pluginService.toggleViewerControl();
+    }
+
+    @POST
+    @Path("/updateViewerControl")
+    @ShowProjection("preferences")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    public PluginResponse updateViewerControl(ViewerControlRequest request) {
+        return this.pluginService.updateViewerControl(request);
+    }
+
+    @POST
+    @Path("/updateManagedPsa")
+    @ShowProjection("preferences")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    public PluginResponse updateManagedPsa(ManagedPSARequest request) {
+        return this.pluginService.updateManagedPsa(request);
+    }
+
+    @POST
+    @Path("/batch")
+    @ShowProjection({"preferences", "sequences", "sequenceGroups", "psaSequences", "requests", "votes", "playingNow"})
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    public BatchResponse batch(BatchRequest request) {
+        return this.pluginService.batch(request);
+    }
+
+    @POST
+    @Path("/fppHeartbeat")
+    @ShowProjection({})
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @NonBlocking
+    public void fppHeartbeat() {
+        this.pollingService.fppHeartbeat(RequestAttributes.show());
+    }
+
+    @GET
+    @Path("/actuator/health")
+    @ShowProjection(value = {}, rateLimited = false)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @NonBlocking
+    public Health health() {
+        return Health.builder()
+                .status("UP")
+                .build();
+    }
+}
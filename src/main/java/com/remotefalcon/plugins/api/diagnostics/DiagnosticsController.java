@@ -0,0 +1,51 @@
+package com.remotefalcon.plugins.api.diagnostics;
+
+import com.remotefalcon.plugins.api.filters.WithoutShow;
+import com.remotefalcon.plugins.api.model.ShowProfileReport;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Optional;
+
+/**
+ * Admin diagnostics, authorized by the {@code admintoken} header against {@code diagnostics.admin-token}. The
+ * endpoints don't exist (404) while no admin token is configured.
+ */
+@Path("/admin")
+@WithoutShow
+public class DiagnosticsController {
+
+    @Inject
+    ShowProfiler showProfiler;
+
+    @ConfigProperty(name = "diagnostics.admin-token")
+    Optional<String> adminToken;
+
+    @GET
+    @Path("/showProfile")
+    @Produces(MediaType.APPLICATION_JSON)
+    public ShowProfileReport showProfile(@HeaderParam("admintoken") String token) {
+        this.authorize(token);
+        return this.showProfiler.report();
+    }
+
+    private void authorize(String token) {
+        if(this.adminToken.isEmpty() || this.adminToken.get().isEmpty()) {
+            throw new NotFoundException();
+        }
+        if(token == null || !MessageDigest.isEqual(
+                this.adminToken.get().getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8))) {
+            throw new WebApplicationException(Response.Status.UNAUTHORIZED);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.remotefalcon.plugins.api.diagnostics;
+
+import com.remotefalcon.plugins.api.metrics.RequestMetrics;
+import com.remotefalcon.plugins.api.model.OperationProfile;
+import com.remotefalcon.plugins.api.model.ShowProfile;
+import com.remotefalcon.plugins.api.model.ShowProfileReport;
+import com.remotefalcon.plugins.api.repository.ShowUpdate;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.BsonType;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Samples show loads and writes to find which shows and fields make documents large. A sampled load records the
+ * document's size, the size of each top-level field and the time to decode it into a {@code Show}; a sampled
+ * flush records the encoded size of its updates. Loads and writes are aggregated per endpoint, and the largest
+ * load of each of the {@code diagnostics.largest-shows} biggest shows is kept. Served by
+ * {@link DiagnosticsController}.
+ */
+@ApplicationScoped
+public class ShowProfiler {
+
+    @ConfigProperty(name = "diagnostics.sample-rate")
+    double sampleRate;
+
+    @ConfigProperty(name = "diagnostics.largest-shows")
+    int largestShowCount;
+
+    //Guarded by this
+    private final Map<String, ShowProfile> largestShows = new HashMap<>();
+    private final Map<String, OperationProfile> operations = new TreeMap<>();
+
+    /**
+     * Decodes a loaded show, profiling the load if it is sampled.
+     */
+    public <T> T profileLoad(RawBsonDocument document, Supplier<T> decode) {
+        if(!this.sampled()) {
+            return decode.get();
+        }
+        long start = System.nanoTime();
+        T decoded = decode.get();
+        long decodeMicros = (System.nanoTime() - start) / 1000;
+        int size = document.getByteBuffer().remaining();
+        BsonValue id = document.get("_id");
+        ShowProfile profile = ShowProfile.builder()
+                .showId(id == null ? null : id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.toString())
+                .endpoint(this.endpoint())
+                .size(size)
+                .fieldSizes(fieldSizes(document))
+                .decodeMicros(decodeMicros)
+                .build();
+        this.recordLoad(profile);
+        return decoded;
+    }
+
+    /**
+     * Profiles the updates of a flush if it is sampled.
+     */
+    public void profileWrite(List<ShowUpdate> updates, Supplier<CodecRegistry> codecRegistries) {
+        if(updates.isEmpty() || !this.sampled()) {
+            return;
+        }
+        CodecRegistry codecRegistry = codecRegistries.get();
+        int size = 0;
+        for(ShowUpdate update : updates) {
+            BsonDocument encoded = update.toBson().toBsonDocument(BsonDocument.class, codecRegistry);
+            size += new RawBsonDocument(encoded, new BsonDocumentCodec()).getByteBuffer().remaining();
+        }
+        this.recordWrite(this.endpoint(), size);
+    }
+
+    public synchronized ShowProfileReport report() {
+        List<ShowProfile> shows = new ArrayList<>(this.largestShows.values());
+        shows.sort(Comparator.comparingInt(ShowProfile::getSize).reversed());
+        Map<String, OperationProfile> operations = new LinkedHashMap<>();
+        this.operations.forEach((endpoint, profile) -> operations.put(endpoint, copy(profile)));
+        return ShowProfileReport.builder()
+                .sampleRate(this.sampleRate)
+                .largestShows(shows)
+                .operations(operations)
+                .build();
+    }
+
+    private synchronized void recordLoad(ShowProfile profile) {
+        OperationProfile operation = this.operation(profile.getEndpoint());
+        operation.setLoads(operation.getLoads() + 1);
+        operation.setTotalLoadBytes(operation.getTotalLoadBytes() + profile.getSize());
+        operation.setMaxLoadBytes(Math.max(operation.getMaxLoadBytes(), profile.getSize()));
+        operation.setTotalDecodeMicros(operation.getTotalDecodeMicros() + profile.getDecodeMicros());
+        operation.setMaxDecodeMicros(Math.max(operation.getMaxDecodeMicros(), profile.getDecodeMicros()));
+
+        if(profile.getShowId() == null) {
+            return;
+        }
+        ShowProfile largest = this.largestShows.get(profile.getShowId());
+        if(largest == null || largest.getSize() < profile.getSize()) {
+            this.largestShows.put(profile.getShowId(), profile);
+        }
+        if(this.largestShows.size() > this.largestShowCount) {
+            this.largestShows.values().stream()
+                    .min(Comparator.comparingInt(ShowProfile::getSize))
+                    .ifPresent(smallest -> this.largestShows.remove(smallest.getShowId()));
+        }
+    }
+
+    private synchronized void recordWrite(String endpoint, int size) {
+        OperationProfile operation = this.operation(endpoint);
+        operation.setWrites(operation.getWrites() + 1);
+        operation.setTotalWriteBytes(operation.getTotalWriteBytes() + size);
+        operation.setMaxWriteBytes(Math.max(operation.getMaxWriteBytes(), size));
+    }
+
+    private static OperationProfile copy(OperationProfile profile) {
+        return OperationProfile.builder()
+                .loads(profile.getLoads())
+                .totalLoadBytes(profile.getTotalLoadBytes())
+                .maxLoadBytes(profile.getMaxLoadBytes())
+                .totalDecodeMicros(profile.getTotalDecodeMicros())
+                .maxDecodeMicros(profile.getMaxDecodeMicros())
+                .writes(profile.getWrites())
+                .totalWriteBytes(profile.getTotalWriteBytes())
+                .maxWriteBytes(profile.getMaxWriteBytes())
+                .build();
+    }
+
+    private OperationProfile operation(String endpoint) {
+        return this.operations.computeIfAbsent(endpoint, key -> new OperationProfile());
+    }
+
+    private boolean sampled() {
+        return this.sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < this.sampleRate;
+    }
+
+    private String endpoint() {
+        return RequestMetrics.currentEndpoint();
+    }
+
+    /**
+     * Encoded size of each top-level field, including its type byte and name, read by walking the raw document
+     * without decoding any value.
+     */
+    static Map<String, Integer> fieldSizes(RawBsonDocument document) {
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        try (BsonBinaryReader reader = new BsonBinaryReader(document.getByteBuffer().asNIO())) {
+            reader.readStartDocument();
+            int position = reader.getBsonInput().getPosition();
+            while(reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                String name = reader.readName();
+                reader.skipValue();
+                int next = reader.getBsonInput().getPosition();
+                sizes.put(name, next - position);
+                position = next;
+            }
+        }
+        return sizes;
+    }
+}
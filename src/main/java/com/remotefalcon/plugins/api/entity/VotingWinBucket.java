@@ -0,0 +1,29 @@
+package com.remotefalcon.plugins.api.entity;
+
+import com.remotefalcon.library.models.Stat;
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.bson.types.ObjectId;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * One show's voting wins for one day. Wins are only ever appended, and {@code count} is kept in step with
+ * {@code wins} so the number of wins today can be read without touching the list.
+ */
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@MongoEntity(collection = "votingWins")
+public class VotingWinBucket {
+  private ObjectId id;
+  private String showToken;
+  private LocalDate day;
+  private Integer count;
+  private List<Stat.VotingWin> wins;
+}
@@ -0,0 +1,89 @@
+package com.remotefalcon.plugins.api.filters;
+
+import com.remotefalcon.library.quarkus.entity.Show;
+import com.remotefalcon.plugins.api.cache.ShowCache;
+import com.remotefalcon.plugins.api.cache.UnknownShowTokens;
+import com.remotefalcon.plugins.api.context.RequestAttributes;
+import com.remotefalcon.plugins.api.metrics.RequestMetrics;
+import com.remotefalcon.plugins.api.repository.ReactiveShowRepository;
+import com.remotefalcon.plugins.api.repository.VersionedShow;
+import io.quarkus.arc.properties.IfBuildProperty;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Context;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.Response;
+import org.jboss.resteasy.reactive.server.ServerRequestFilter;
+
+import java.util.Optional;
+
+/**
+ * Non-blocking {@link ShowTokenFilter} for the reactive stack. The checks and responses are the same; the show is
+ * loaded through {@link ReactiveShowRepository} and a cache miss is loaded and cached here rather than by
+ * {@link ShowCache#get}, which would block. The request's context and metrics are captured up front, since the
+ * show may be handed over on a Mongo driver thread.
+ */
+@IfBuildProperty(name = "plugins.stack", stringValue = "reactive")
+public class ReactiveShowTokenFilter {
+
+    @Inject
+    ReactiveShowRepository showRepository;
+
+    @Inject
+    ShowCache showCache;
+
+    @Inject
+    UnknownShowTokens unknownShowTokens;
+
+    @Inject
+    ShowTokenRateLimiter rateLimiter;
+
+    @ServerRequestFilter
+    public Uni<Response> filter(ContainerRequestContext requestContext, ResourceInfo resourceInfo) {
+        if (ShowTokenFilter.withoutShow(resourceInfo)) {
+            return Uni.createFrom().nullItem();
+        }
+        String showToken = ShowTokenFilter.showToken(requestContext);
+        if (showToken == null || showToken.isEmpty()) {
+            return Uni.createFrom().item(ShowTokenFilter.unauthorized());
+        }
+
+        ShowProjection projection = ShowTokenFilter.projection(resourceInfo);
+        if (ShowTokenFilter.rateLimited(projection) && !this.rateLimiter.tryAcquire(showToken)) {
+            return Uni.createFrom().item(ShowTokenFilter.tooManyRequests());
+        }
+
+        if (this.unknownShowTokens.contains(showToken)) {
+            return Uni.createFrom().item(ShowTokenFilter.showNotFound());
+        }
+
+        Context context = RequestAttributes.current();
+        RequestMetrics requestMetrics = RequestMetrics.current();
+        return this.loadShow(showToken, projection)
+                .map(showOptional -> {
+                    if (showOptional.isEmpty()) {
+                        this.unknownShowTokens.add(showToken);
+                        return ShowTokenFilter.showNotFound();
+                    }
+                    RequestAttributes.show(context, showOptional.get(), ShowTokenFilter.fields(projection));
+                    ShowTokenFilter.showLoaded(requestMetrics, showOptional.get());
+                    return null;
+                });
+    }
+
+    private Uni<Optional<VersionedShow>> loadShow(String showToken, ShowProjection projection) {
+        if (projection == null || !projection.cached() || !this.showCache.isActive()) {
+            return this.showRepository.findVersionedByShowToken(showToken, ShowTokenFilter.fields(projection));
+        }
+        Optional<Show> cachedShow = this.showCache.getIfPresent(showToken);
+        if (cachedShow.isPresent()) {
+            return Uni.createFrom().item(cachedShow.map(show -> new VersionedShow(show, null, 0)));
+        }
+        long load = this.showCache.startLoad(showToken);
+        return this.showRepository.findVersionedByShowToken(showToken, ShowCache.CACHED_FIELDS)
+                .invoke(showOptional -> showOptional.ifPresent(show -> this.showCache.put(showToken, show.show(), load)))
+                .onTermination().invoke(() -> this.showCache.endLoad(showToken, load))
+                .map(showOptional -> showOptional.map(show -> new VersionedShow(show.show(), null, 0)));
+    }
+}
@@ -0,0 +1,35 @@
+package com.remotefalcon.plugins.api.filters;
+
+import com.remotefalcon.plugins.api.metrics.PluginMetrics;
+import com.remotefalcon.plugins.api.metrics.RequestMetrics;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ResourceInfo;
+import org.jboss.resteasy.reactive.server.ServerRequestFilter;
+import org.jboss.resteasy.reactive.server.ServerResponseFilter;
+
+/**
+ * Starts the {@link RequestMetrics} of a request before the show is loaded, and records them after every other
+ * response filter, so the writes {@link ShowUnitOfWorkFilter} flushes are counted.
+ */
+public class RequestMetricsFilter {
+
+    @Inject
+    PluginMetrics pluginMetrics;
+
+    @ServerRequestFilter(priority = Priorities.USER - 1000)
+    public void start(ResourceInfo resourceInfo) {
+        RequestMetrics.start(this.pluginMetrics, resourceInfo.getResourceMethod() != null
+                ? resourceInfo.getResourceMethod().getName()
+                : "unmatched");
+    }
+
+    @ServerResponseFilter(priority = Priorities.USER - 1000)
+    public void finish(ContainerResponseContext responseContext) {
+        RequestMetrics requestMetrics = RequestMetrics.current();
+        if (requestMetrics != null) {
+            requestMetrics.finish(responseContext.getStatus());
+        }
+    }
+}
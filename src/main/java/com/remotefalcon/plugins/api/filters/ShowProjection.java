@@ -0,0 +1,33 @@
+package com.remotefalcon.plugins.api.filters;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares which top-level {@code Show} fields an endpoint reads. {@link ShowTokenFilter} loads only these
+ * fields (plus {@code _id} and {@code showToken}) instead of the full document. Endpoints without this
+ * annotation get the full show.
+ * <p>
+ * The loaded show is partial, so endpoints using this must write back through field-level updates
+ * ({@code ShowRepository#update}) and never persist the whole show, otherwise the fields left out of the
+ * projection would be wiped.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ShowProjection {
+    String[] value();
+
+    /**
+     * Serve the show from {@code ShowCache} when it is available. Only for read-only endpoints whose fields are
+     * all in {@code ShowCache.CACHED_FIELDS}, since the cached show is shared between requests.
+     */
+    boolean cached() default false;
+
+    /**
+     * Count the request against its show token's {@link ShowTokenRateLimiter} bucket. Off for probes like health,
+     * which must keep answering while the show's plugin is being throttled.
+     */
+    boolean rateLimited() default true;
+}
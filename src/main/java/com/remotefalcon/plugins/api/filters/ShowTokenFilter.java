@@ -1,57 +1,125 @@
 package com.remotefalcon.plugins.api.filters;
 
-import com.remotefalcon.library.quarkus.entity.Show;
-import com.remotefalcon.plugins.api.context.ShowContext;
+import com.remotefalcon.plugins.api.cache.ShowCache;
+import com.remotefalcon.plugins.api.cache.UnknownShowTokens;
+import com.remotefalcon.plugins.api.context.RequestAttributes;
+import com.remotefalcon.plugins.api.metrics.RequestMetrics;
 import com.remotefalcon.plugins.api.repository.ShowRepository;
-import jakarta.enterprise.context.RequestScoped;
+import com.remotefalcon.plugins.api.repository.VersionedShow;
+import io.quarkus.arc.properties.UnlessBuildProperty;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.container.ContainerRequestContext;
-import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ResourceInfo;
 import jakarta.ws.rs.core.Response;
-import jakarta.ws.rs.ext.Provider;
+import org.jboss.resteasy.reactive.server.ServerRequestFilter;
 
 import java.util.Optional;
 
-@Provider
-@RequestScoped
-public class ShowTokenFilter implements ContainerRequestFilter {
+/**
+ * Resolves the show of a plugin request from its token and hands it to the endpoint as a {@link RequestAttributes
+ * request attribute}. The filter is a singleton and keeps no state of its own, so a poll that only reads its show
+ * never touches a request-scoped bean.
+ */
+@UnlessBuildProperty(name = "plugins.stack", stringValue = "reactive", enableIfMissing = true)
+public class ShowTokenFilter {
 
     @Inject
     ShowRepository showRepository;
 
     @Inject
-    ShowContext showContext;
+    ShowCache showCache;
 
+    @Inject
+    UnknownShowTokens unknownShowTokens;
 
-    @Override
-    public void filter(ContainerRequestContext requestContext) {
-        String showToken = requestContext.getHeaderString("showtoken");
-        if (showToken == null) {
-            showToken = requestContext.getHeaderString("remotetoken");
-        }
+    @Inject
+    ShowTokenRateLimiter rateLimiter;
 
+    @ServerRequestFilter
+    public void filter(ContainerRequestContext requestContext, ResourceInfo resourceInfo) {
+        if (withoutShow(resourceInfo)) {
+            return;
+        }
+        String showToken = showToken(requestContext);
         if (showToken == null || showToken.isEmpty()) {
-            requestContext.abortWith(
-                    Response.status(Response.Status.UNAUTHORIZED)
-                            .entity("Missing or invalid show token")
-                            .build()
-            );
+            requestContext.abortWith(unauthorized());
+            return;
+        }
+
+        ShowProjection projection = projection(resourceInfo);
+        if (rateLimited(projection) && !this.rateLimiter.tryAcquire(showToken)) {
+            requestContext.abortWith(tooManyRequests());
+            return;
+        }
+
+        if (this.unknownShowTokens.contains(showToken)) {
+            requestContext.abortWith(showNotFound());
             return;
         }
 
-        Optional<Show> showOptional = this.showRepository.findByShowToken(showToken);
+        Optional<VersionedShow> showOptional;
+        if (projection != null && projection.cached() && this.showCache.isActive()) {
+            showOptional = this.showCache.get(showToken).map(show -> new VersionedShow(show, null, 0));
+        } else {
+            showOptional = this.showRepository.findVersionedByShowToken(showToken, fields(projection));
+        }
         if (showOptional.isEmpty()) {
-            requestContext.abortWith(
-                    Response.status(Response.Status.NOT_FOUND)
-                            .entity("Show not found for the provided token")
-                            .build()
-            );
+            this.unknownShowTokens.add(showToken);
+            requestContext.abortWith(showNotFound());
             return;
         }
 
-        Show show = showOptional.get();
-        showContext.setShow(show);
+        RequestAttributes.show(showOptional.get(), fields(projection));
+        showLoaded(RequestMetrics.current(), showOptional.get());
+    }
+
+    static void showLoaded(RequestMetrics requestMetrics, VersionedShow show) {
+        if (requestMetrics != null) {
+            requestMetrics.showLoaded(show.show(), show.size());
+        }
+    }
+
+    static String showToken(ContainerRequestContext requestContext) {
+        String showToken = requestContext.getHeaderString("showtoken");
+        if (showToken == null) {
+            showToken = requestContext.getHeaderString("remotetoken");
+        }
+        return showToken;
+    }
+
+    static boolean withoutShow(ResourceInfo resourceInfo) {
+        return resourceInfo.getResourceClass() != null && resourceInfo.getResourceClass().isAnnotationPresent(WithoutShow.class);
+    }
+
+    static ShowProjection projection(ResourceInfo resourceInfo) {
+        return resourceInfo.getResourceMethod() != null
+                ? resourceInfo.getResourceMethod().getAnnotation(ShowProjection.class)
+                : null;
     }
 
+    static boolean rateLimited(ShowProjection projection) {
+        return projection == null || projection.rateLimited();
+    }
 
+    static String[] fields(ShowProjection projection) {
+        return projection != null ? projection.value() : null;
+    }
+
+    static Response unauthorized() {
+        return Response.status(Response.Status.UNAUTHORIZED)
+                .entity("Missing or invalid show token")
+                .build();
+    }
+
+    static Response tooManyRequests() {
+        return Response.status(Response.Status.TOO_MANY_REQUESTS)
+                .entity("Too many requests for the provided token")
+                .build();
+    }
+
+    static Response showNotFound() {
+        return Response.status(Response.Status.NOT_FOUND)
+                .entity("Show not found for the provided token")
+                .build();
+    }
 }
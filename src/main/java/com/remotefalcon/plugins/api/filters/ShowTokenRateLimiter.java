@@ -0,0 +1,73 @@
+package com.remotefalcon.plugins.api.filters;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+
+/**
+ * Token-bucket rate limit per show token, checked before any database work. Buckets for tokens that go quiet
+ * are dropped after a minute, so the number of tracked tokens stays bounded. Off unless
+ * {@code SHOW_RATE_LIMIT_ENABLED} is set; endpoints opt out with {@link ShowProjection#rateLimited()}.
+ */
+@ApplicationScoped
+public class ShowTokenRateLimiter {
+    private static final Duration IDLE_BUCKET_EXPIRY = Duration.ofMinutes(1);
+
+    @ConfigProperty(name = "show.rate-limit.enabled")
+    boolean enabled;
+
+    @ConfigProperty(name = "show.rate-limit.capacity")
+    int capacity;
+
+    @ConfigProperty(name = "show.rate-limit.refill-per-second")
+    double refillPerSecond;
+
+    @ConfigProperty(name = "show.rate-limit.maximum-tokens")
+    long maximumTokens;
+
+    private Cache<String, TokenBucket> buckets;
+
+    @PostConstruct
+    void init() {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(this.maximumTokens)
+                .expireAfterAccess(IDLE_BUCKET_EXPIRY)
+                .build();
+    }
+
+    public boolean tryAcquire(String showToken) {
+        if(!this.enabled) {
+            return true;
+        }
+        return this.buckets.get(showToken, token -> new TokenBucket(this.capacity, this.refillPerSecond))
+                .tryAcquire(System.nanoTime());
+    }
+
+    static final class TokenBucket {
+        private final int capacity;
+        private final double refillPerNano;
+        private double available;
+        private long lastRefill;
+
+        TokenBucket(int capacity, double refillPerSecond) {
+            this.capacity = capacity;
+            this.refillPerNano = refillPerSecond / 1_000_000_000d;
+            this.available = capacity;
+            this.lastRefill = System.nanoTime();
+        }
+
+        synchronized boolean tryAcquire(long now) {
+            this.available = Math.min(this.capacity, this.available + (now - this.lastRefill) * this.refillPerNano);
+            this.lastRefill = now;
+            if(this.available < 1) {
+                return false;
+            }
+            this.available--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.remotefalcon.plugins.api.filters;
+
+import com.remotefalcon.plugins.api.context.RequestAttributes;
+import com.remotefalcon.plugins.api.service.ShowUnitOfWork;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.core.Response;
+import org.jboss.resteasy.reactive.server.ServerResponseFilter;
+
+/**
+ * Writes the show changes a request left in {@link ShowUnitOfWork}, once the endpoint has answered successfully.
+ * Failed requests write nothing. Runs before the response is sent, so a failed write still fails the request.
+ * The unit of work is looked up as a request attribute, so requests that never recorded a change don't create one.
+ */
+public class ShowUnitOfWorkFilter {
+
+    @ServerResponseFilter
+    public void filter(ContainerResponseContext responseContext) {
+        ShowUnitOfWork unitOfWork = RequestAttributes.get(RequestAttributes.UNIT_OF_WORK);
+        if (unitOfWork == null || !unitOfWork.isDirty()) {
+            return;
+        }
+        if (responseContext.getStatusInfo().getFamily() == Response.Status.Family.SUCCESSFUL) {
+            unitOfWork.flush();
+        } else {
+            unitOfWork.discard();
+        }
+    }
+}
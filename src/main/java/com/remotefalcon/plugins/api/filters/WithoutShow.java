@@ -0,0 +1,15 @@
+package com.remotefalcon.plugins.api.filters;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks an endpoint that doesn't act on a show, like the admin diagnostics. {@link ShowTokenFilter} lets it
+ * through without a show token and loads nothing; the endpoint does its own authorization.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface WithoutShow {
+}
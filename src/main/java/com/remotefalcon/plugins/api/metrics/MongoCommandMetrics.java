@@ -0,0 +1,68 @@
+package com.remotefalcon.plugins.api.metrics;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import com.remotefalcon.library.quarkus.entity.Show;
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every Mongo command the clients send, split into reads and writes. The Mongo client picks the listener up
+ * as a bean. With the blocking driver the events fire on the request's own thread, so the time and any show write
+ * are also added to its {@link RequestMetrics}. The reactive driver completes commands on its own threads, outside
+ * any request, so those are only recorded with the {@code none} endpoint.
+ */
+@ApplicationScoped
+public class MongoCommandMetrics implements CommandListener {
+    private static final Set<String> WRITE_COMMANDS = Set.of("insert", "update", "delete", "findAndModify");
+    private static final String SHOW_COLLECTION = showCollection();
+
+    @Inject
+    PluginMetrics pluginMetrics;
+
+    //Write commands in flight that target the show collection, by request id
+    private final Map<Integer, Boolean> showWrites = new ConcurrentHashMap<>();
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if(WRITE_COMMANDS.contains(event.getCommandName())
+                && SHOW_COLLECTION.equals(event.getCommand().getString(event.getCommandName()).getValue())) {
+            this.showWrites.put(event.getRequestId(), Boolean.TRUE);
+        }
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        this.record(event.getRequestId(), event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {
+        this.record(event.getRequestId(), event.getCommandName(), event.getElapsedTime(TimeUnit.NANOSECONDS));
+    }
+
+    private void record(int requestId, String command, long nanos) {
+        boolean write = WRITE_COMMANDS.contains(command);
+        boolean showWrite = this.showWrites.remove(requestId) != null;
+        String endpoint = RequestMetrics.NO_ENDPOINT;
+        RequestMetrics requestMetrics = RequestMetrics.current();
+        if(requestMetrics != null) {
+            requestMetrics.mongoCommand(write, showWrite, nanos);
+            endpoint = requestMetrics.endpoint();
+        }
+        this.pluginMetrics.mongoCommand(endpoint, command, write, nanos);
+    }
+
+    private static String showCollection() {
+        MongoEntity entity = Show.class.getAnnotation(MongoEntity.class);
+        return entity != null && !entity.collection().isEmpty() ? entity.collection() : Show.class.getSimpleName();
+    }
+}
@@ -0,0 +1,108 @@
+package com.remotefalcon.plugins.api.metrics;
+
+import com.remotefalcon.library.quarkus.entity.Show;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongHistogram;
+import io.opentelemetry.api.metrics.Meter;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+/**
+ * The domain metrics of the plugin API, exported through OpenTelemetry. Everything is tagged by endpoint (the
+ * resource method name) and never by show token, so cardinality stays bounded by the number of endpoints.
+ */
+@ApplicationScoped
+public class PluginMetrics {
+    static final AttributeKey<String> ENDPOINT = AttributeKey.stringKey("endpoint");
+    static final AttributeKey<String> STATUS = AttributeKey.stringKey("status");
+    static final AttributeKey<String> COMMAND = AttributeKey.stringKey("command");
+    static final AttributeKey<String> OPERATION = AttributeKey.stringKey("operation");
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    @Inject
+    Meter meter;
+
+    private DoubleHistogram requestDuration;
+    private DoubleHistogram requestMongoDuration;
+    private LongHistogram requestShowWrites;
+    private LongHistogram showSize;
+    private LongHistogram queueDepth;
+    private LongHistogram voteCount;
+    private DoubleHistogram mongoCommandDuration;
+
+    @PostConstruct
+    void init() {
+        this.requestDuration = this.meter.histogramBuilder("plugin.request.duration")
+                .setDescription("Time to answer a plugin request")
+                .setUnit("s")
+                .build();
+        this.requestMongoDuration = this.meter.histogramBuilder("plugin.request.mongo.duration")
+                .setDescription("Time a plugin request spent in Mongo reads or writes")
+                .setUnit("s")
+                .build();
+        this.requestShowWrites = this.meter.histogramBuilder("plugin.request.show.writes")
+                .setDescription("Show writes sent to Mongo by a plugin request")
+                .setUnit("{write}")
+                .ofLongs()
+                .build();
+        this.showSize = this.meter.histogramBuilder("plugin.show.size")
+                .setDescription("Size of the show document loaded for a request, with the endpoint's projection")
+                .setUnit("By")
+                .ofLongs()
+                .build();
+        this.queueDepth = this.meter.histogramBuilder("plugin.show.queue.depth")
+                .setDescription("Requests queued on the show when it was loaded")
+                .setUnit("{request}")
+                .ofLongs()
+                .build();
+        this.voteCount = this.meter.histogramBuilder("plugin.show.votes")
+                .setDescription("Votes on the show when it was loaded")
+                .setUnit("{vote}")
+                .ofLongs()
+                .build();
+        this.mongoCommandDuration = this.meter.histogramBuilder("plugin.mongo.command.duration")
+                .setDescription("Time of a Mongo command")
+                .setUnit("s")
+                .build();
+    }
+
+    void request(RequestMetrics request, int status) {
+        Attributes endpoint = Attributes.of(ENDPOINT, request.endpoint());
+        this.requestDuration.record(seconds(System.nanoTime() - request.startNanos()),
+                Attributes.of(ENDPOINT, request.endpoint(), STATUS, (status / 100) + "xx"));
+        this.requestMongoDuration.record(seconds(request.mongoReadNanos()),
+                Attributes.of(ENDPOINT, request.endpoint(), OPERATION, "read"));
+        this.requestMongoDuration.record(seconds(request.mongoWriteNanos()),
+                Attributes.of(ENDPOINT, request.endpoint(), OPERATION, "write"));
+        this.requestShowWrites.record(request.showWrites(), endpoint);
+    }
+
+    /**
+     * Records what the show looked like when it was loaded. Lists the endpoint didn't load are left out, and so is
+     * the size of shows served from the cache (0).
+     */
+    void showLoaded(String endpoint, Show show, int size) {
+        Attributes attributes = Attributes.of(ENDPOINT, endpoint);
+        if(size > 0) {
+            this.showSize.record(size, attributes);
+        }
+        if(show.getRequests() != null) {
+            this.queueDepth.record(show.getRequests().size(), attributes);
+        }
+        if(show.getVotes() != null) {
+            this.voteCount.record(show.getVotes().size(), attributes);
+        }
+    }
+
+    void mongoCommand(String endpoint, String command, boolean write, long nanos) {
+        this.mongoCommandDuration.record(seconds(nanos), Attributes.of(
+                ENDPOINT, endpoint, COMMAND, command, OPERATION, write ? "write" : "read"));
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / NANOS_PER_SECOND;
+    }
+}
@@ -0,0 +1,87 @@
+package com.remotefalcon.plugins.api.metrics;
+
+import com.remotefalcon.library.quarkus.entity.Show;
+import com.remotefalcon.plugins.api.context.RequestAttributes;
+
+/**
+ * What one plugin request did, collected while it runs and recorded by {@link #finish} once it has answered. Kept
+ * as a {@link RequestAttributes request attribute} rather than a request-scoped bean, so that timing a poll doesn't
+ * activate the request context.
+ */
+public class RequestMetrics {
+    public static final String NO_ENDPOINT = "none";
+
+    private final PluginMetrics pluginMetrics;
+    private final String endpoint;
+    private final long startNanos;
+    private long mongoReadNanos;
+    private long mongoWriteNanos;
+    private int showWrites;
+
+    private RequestMetrics(PluginMetrics pluginMetrics, String endpoint) {
+        this.pluginMetrics = pluginMetrics;
+        this.endpoint = endpoint;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Starts the metrics of the request running on this thread.
+     */
+    public static void start(PluginMetrics pluginMetrics, String endpoint) {
+        RequestAttributes.set(RequestAttributes.METRICS, new RequestMetrics(pluginMetrics, endpoint));
+    }
+
+    /**
+     * The metrics of the request running on this thread, or null outside a request.
+     */
+    public static RequestMetrics current() {
+        return RequestAttributes.get(RequestAttributes.METRICS);
+    }
+
+    /**
+     * The endpoint of the request running on this thread, or {@link #NO_ENDPOINT}.
+     */
+    public static String currentEndpoint() {
+        RequestMetrics current = current();
+        return current != null ? current.endpoint : NO_ENDPOINT;
+    }
+
+    public void showLoaded(Show show, int size) {
+        this.pluginMetrics.showLoaded(this.endpoint, show, size);
+    }
+
+    public void finish(int status) {
+        this.pluginMetrics.request(this, status);
+    }
+
+    void mongoCommand(boolean write, boolean showWrite, long nanos) {
+        if(write) {
+            this.mongoWriteNanos += nanos;
+        }else {
+            this.mongoReadNanos += nanos;
+        }
+        if(showWrite) {
+            this.showWrites++;
+        }
+    }
+
+    public String endpoint() {
+        return this.endpoint;
+    }
+
+    long startNanos() {
+        return this.startNanos;
+    }
+
+    long mongoReadNanos() {
+        return this.mongoReadNanos;
+    }
+
+    long mongoWriteNanos() {
+        return this.mongoWriteNanos;
+    }
+
+    int showWrites() {
+        return this.showWrites;
+    }
+}
@@ -0,0 +1,20 @@
+package com.remotefalcon.plugins.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One operation of a batch. {@code type} is the name of the plugin endpoint it stands for; {@code playlist} is
+ * the argument of updateWhatsPlaying and {@code sequence} the argument of updateNextScheduledSequence.
+ */
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchOperation {
+  private String type;
+  private String playlist;
+  private String sequence;
+}
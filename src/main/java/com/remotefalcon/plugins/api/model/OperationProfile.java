@@ -0,0 +1,24 @@
+package com.remotefalcon.plugins.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Sampled show loads and writes of one endpoint. Payload sizes are the encoded updates of a flush.
+ */
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class OperationProfile {
+  private long loads;
+  private long totalLoadBytes;
+  private int maxLoadBytes;
+  private long totalDecodeMicros;
+  private long maxDecodeMicros;
+  private long writes;
+  private long totalWriteBytes;
+  private int maxWriteBytes;
+}
@@ -0,0 +1,23 @@
+package com.remotefalcon.plugins.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * The largest sampled load of one show. Shows are identified by document id, never by token.
+ */
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShowProfile {
+  private String showId;
+  private String endpoint;
+  private int size;
+  private Map<String, Integer> fieldSizes;
+  private long decodeMicros;
+}
@@ -0,0 +1,19 @@
+package com.remotefalcon.plugins.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Builder
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShowProfileReport {
+  private double sampleRate;
+  private List<ShowProfile> largestShows;
+  private Map<String, OperationProfile> operations;
+}
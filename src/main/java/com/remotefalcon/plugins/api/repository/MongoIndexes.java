@@ -0,0 +1,118 @@
+package com.remotefalcon.plugins.api.repository;
+
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.IndexModel;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Makes sure the indexes the repositories declare exist, at startup. Each declared index is checked against the
+ * collection's indexes by key pattern (and uniqueness), created when missing if {@code mongo.indexes.create} is
+ * set, and reported in the log. With {@code mongo.indexes.fail-on-missing} startup fails while any is still
+ * missing, since every lookup would then be a collection scan.
+ */
+@ApplicationScoped
+public class MongoIndexes {
+    private static final Logger LOG = Logger.getLogger(MongoIndexes.class);
+
+    @Inject
+    ShowRepository showRepository;
+
+    @Inject
+    VotingWinRepository votingWinRepository;
+
+    @ConfigProperty(name = "mongo.indexes.create")
+    boolean create;
+
+    @ConfigProperty(name = "mongo.indexes.fail-on-missing")
+    boolean failOnMissing;
+
+    void onStart(@Observes StartupEvent event) {
+        List<String> missing = new ArrayList<>();
+        missing.addAll(this.ensure(this.showRepository.mongoCollection(), ShowRepository.INDEXES));
+        missing.addAll(this.ensure(this.votingWinRepository.mongoCollection(), VotingWinRepository.INDEXES));
+        if(missing.isEmpty()) {
+            LOG.info("Mongo indexes: all present");
+        }else if(this.failOnMissing) {
+            throw new IllegalStateException("Missing Mongo indexes: " + missing);
+        }else {
+            LOG.warnf("Mongo indexes: missing %s, lookups on them scan the collection", missing);
+        }
+    }
+
+    /**
+     * Returns the declared indexes that are still missing afterwards.
+     */
+    private List<String> ensure(MongoCollection<?> collection, List<IndexModel> indexes) {
+        List<Document> existing = collection.listIndexes().into(new ArrayList<>());
+        List<String> missing = new ArrayList<>();
+        for(IndexModel index : indexes) {
+            String description = describe(collection, index);
+            if(isPresent(existing, index)) {
+                LOG.infof("Mongo index %s present", description);
+                continue;
+            }
+            if(this.create) {
+                try {
+                    collection.createIndex(index.getKeys(), index.getOptions());
+                    LOG.infof("Mongo index %s created", description);
+                    continue;
+                }catch (MongoException e) {
+                    LOG.warnf(e, "Mongo index %s could not be created", description);
+                }
+            }
+            missing.add(description);
+        }
+        return missing;
+    }
+
+    static boolean isPresent(List<Document> existing, IndexModel index) {
+        BsonDocument keys = index.getKeys().toBsonDocument();
+        boolean unique = Boolean.TRUE.equals(index.getOptions().isUnique());
+        return existing.stream().anyMatch(document -> sameKeys(document.get("key", Document.class).toBsonDocument(), keys)
+                && (!unique || document.getBoolean("unique", false)));
+    }
+
+    /**
+     * Same fields in the same order and direction. Indexes created by other tools may store the direction as a
+     * double, so numbers are compared by value.
+     */
+    private static boolean sameKeys(BsonDocument first, BsonDocument second) {
+        if(first.size() != second.size()) {
+            return false;
+        }
+        Iterator<Map.Entry<String, BsonValue>> others = second.entrySet().iterator();
+        for(Map.Entry<String, BsonValue> key : first.entrySet()) {
+            Map.Entry<String, BsonValue> other = others.next();
+            if(!key.getKey().equals(other.getKey()) || !sameDirection(key.getValue(), other.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameDirection(BsonValue first, BsonValue second) {
+        if(first.isNumber() && second.isNumber()) {
+            return first.asNumber().doubleValue() == second.asNumber().doubleValue();
+        }
+        return first.equals(second);
+    }
+
+    private static String describe(MongoCollection<?> collection, IndexModel index) {
+        return collection.getNamespace().getCollectionName() + index.getKeys().toBsonDocument().toJson()
+                + (Boolean.TRUE.equals(index.getOptions().isUnique()) ? " unique" : "");
+    }
+}
@@ -0,0 +1,95 @@
+package com.remotefalcon.plugins.api.repository;
+
+import com.mongodb.client.model.Filters;
+import com.remotefalcon.library.models.Request;
+import com.remotefalcon.library.quarkus.entity.Show;
+import com.remotefalcon.plugins.api.cache.ShowCache;
+import com.remotefalcon.plugins.api.diagnostics.ShowProfiler;
+import io.quarkus.mongodb.FindOptions;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheMongoRepository;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.bson.RawBsonDocument;
+
+import java.util.Optional;
+
+/**
+ * Non-blocking counterpart of {@link ShowRepository} for the reactive plugin endpoints. Queries and updates are
+ * the same as the blocking repository's, only the driver differs.
+ */
+@ApplicationScoped
+public class ReactiveShowRepository implements ReactivePanacheMongoRepository<Show> {
+    @Inject
+    ShowCache showCache;
+
+    @Inject
+    ShowProfiler showProfiler;
+
+    public Uni<Optional<Show>> findByShowToken(String showToken, String... fields) {
+        return mongoCollection()
+                .find(Filters.eq("showToken", showToken), new FindOptions()
+                        .projection(ShowRepository.projection(fields))
+                        .limit(1))
+                .collect().first()
+                .map(Optional::ofNullable);
+    }
+
+    /**
+     * See {@link ShowRepository#findVersionedByShowToken(String, String[])}.
+     */
+    public Uni<Optional<VersionedShow>> findVersionedByShowToken(String showToken, String[] fields) {
+        FindOptions options = new FindOptions().limit(1);
+        if(fields != null) {
+            options.projection(ShowRepository.projection(fields));
+        }
+        return mongoCollection()
+                .withDocumentClass(RawBsonDocument.class)
+                .find(Filters.eq("showToken", showToken), options)
+                .collect().first()
+                .map(document -> Optional.ofNullable(document)
+                        .map(found -> this.showProfiler.profileLoad(found,
+                                () -> ShowRepository.versionedShow(found, mongoCollection().getCodecRegistry()))));
+    }
+
+    public Uni<Boolean> update(String showToken, ShowUpdate update) {
+        if(update.isEmpty()) {
+            return Uni.createFrom().item(false);
+        }
+        return mongoCollection()
+                .updateOne(Filters.eq("showToken", showToken), update.set(ShowRepository.VERSION_FIELD, ShowRepository.newVersion()).toBson(),
+                        update.toOptions())
+                .map(result -> result.getMatchedCount() > 0)
+                .invoke(() -> this.showCache.invalidate(showToken, update));
+    }
+
+    /**
+     * See {@link ShowRepository#update(String, Long, ShowUpdate)}.
+     */
+    public Uni<Boolean> update(String showToken, Long expectedVersion, ShowUpdate update) {
+        if(update.isEmpty()) {
+            return Uni.createFrom().item(true);
+        }
+        return mongoCollection()
+                .updateOne(ShowRepository.versionFilter(showToken, expectedVersion),
+                        update.set(ShowRepository.VERSION_FIELD, ShowRepository.newVersion()).toBson(), update.toOptions())
+                .map(result -> result.getMatchedCount() > 0)
+                .invoke(() -> this.showCache.invalidate(showToken, update));
+    }
+
+    /**
+     * See {@link ShowRepository#dequeueNextRequest(String)}.
+     */
+    public Uni<Optional<Request>> dequeueNextRequest(String showToken) {
+        return Uni.createFrom().publisher(mongoCollection().unwrap().findOneAndUpdate(
+                        ShowRepository.dequeueFilter(showToken),
+                        ShowRepository.dequeuePipeline(ShowRepository.newVersion()),
+                        ShowRepository.dequeueOptions()))
+                .invoke(before -> {
+                    if(before != null) {
+                        this.showCache.invalidate(showToken);
+                    }
+                })
+                .map(ShowRepository::dequeuedRequest);
+    }
+}
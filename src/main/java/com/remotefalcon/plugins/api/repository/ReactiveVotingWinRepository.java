@@ -0,0 +1,40 @@
+package com.remotefalcon.plugins.api.repository;
+
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOptions;
+import com.remotefalcon.library.models.Stat;
+import com.remotefalcon.plugins.api.entity.VotingWinBucket;
+import io.quarkus.mongodb.FindOptions;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheMongoRepository;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.time.LocalDate;
+
+@ApplicationScoped
+public class ReactiveVotingWinRepository implements ReactivePanacheMongoRepository<VotingWinBucket> {
+
+    /**
+     * See {@link VotingWinRepository#record(String, Stat.VotingWin)}.
+     */
+    public Uni<Void> record(String showToken, Stat.VotingWin votingWin) {
+        return mongoCollection()
+                .updateOne(
+                        VotingWinRepository.bucketFilter(showToken, votingWin.getDateTime().toLocalDate()),
+                        VotingWinRepository.recordUpdate(votingWin),
+                        new UpdateOptions().upsert(true))
+                .replaceWithVoid();
+    }
+
+    /**
+     * See {@link VotingWinRepository#count(String, LocalDate)}.
+     */
+    public Uni<Integer> count(String showToken, LocalDate day) {
+        return mongoCollection()
+                .find(VotingWinRepository.bucketFilter(showToken, day), new FindOptions()
+                        .projection(Projections.include("count"))
+                        .limit(1))
+                .collect().first()
+                .map(VotingWinRepository::count);
+    }
+}
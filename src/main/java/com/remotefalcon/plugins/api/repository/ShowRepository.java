@@ -1,14 +1,280 @@
 package com.remotefalcon.plugins.api.repository;
 
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import com.remotefalcon.library.models.Request;
 import com.remotefalcon.library.quarkus.entity.Show;
+import com.remotefalcon.plugins.api.cache.ShowCache;
+import com.remotefalcon.plugins.api.diagnostics.ShowProfiler;
 import io.quarkus.mongodb.panache.PanacheMongoRepository;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
 
 @ApplicationScoped
 public class ShowRepository implements PanacheMongoRepository<Show> {
+    /**
+     * Stamped with a new random value by every write from this service except buffered heartbeats, so a
+     * read-modify-write can make its update conditional on the version it loaded.
+     */
+    public static final String VERSION_FIELD = "writeVersion";
+
+    /**
+     * Every plugin request looks its show up by token, and the viewer side by subdomain. Created or verified at
+     * startup by {@link MongoIndexes}.
+     */
+    static final List<IndexModel> INDEXES = List.of(
+            new IndexModel(Indexes.ascending("showToken"), new IndexOptions().unique(true)),
+            new IndexModel(Indexes.ascending("showSubdomain")));
+
+    @Inject
+    ShowCache showCache;
+
+    @Inject
+    ShowProfiler showProfiler;
+
     public Optional<Show> findByShowToken(String showToken) {
         return find("showToken", showToken).firstResultOptional();
     }
+
+    public Optional<Show> findByShowToken(String showToken, String... fields) {
+        return Optional.ofNullable(mongoCollection()
+                .find(Filters.eq("showToken", showToken))
+                .projection(projection(fields))
+                .first());
+    }
+
+    /**
+     * Loads the show with its version. {@code fields} are the fields to load, as for
+     * {@link #findByShowToken(String, String...)}, or null for the whole show.
+     */
+    public Optional<VersionedShow> findVersionedByShowToken(String showToken, String[] fields) {
+        FindIterable<RawBsonDocument> find = mongoCollection()
+                .withDocumentClass(RawBsonDocument.class)
+                .find(Filters.eq("showToken", showToken));
+        if(fields != null) {
+            find = find.projection(projection(fields));
+        }
+        return Optional.ofNullable(find.first())
+                .map(document -> this.showProfiler.profileLoad(document, () -> versionedShow(document, mongoCollection().getCodecRegistry())));
+    }
+
+    public boolean update(String showToken, ShowUpdate update) {
+        if(update.isEmpty()) {
+            return false;
+        }
+        boolean matched = mongoCollection()
+                .updateOne(Filters.eq("showToken", showToken), update.set(VERSION_FIELD, newVersion()).toBson(), update.toOptions())
+                .getMatchedCount() > 0;
+        this.showCache.invalidate(showToken, update);
+        return matched;
+    }
+
+    /**
+     * Applies the update only if the show is still at {@code expectedVersion}. Returns false when it isn't, in
+     * which case nothing was written. An empty update writes nothing and counts as applied.
+     */
+    public boolean update(String showToken, Long expectedVersion, ShowUpdate update) {
+        if(update.isEmpty()) {
+            return true;
+        }
+        boolean matched = mongoCollection()
+                .updateOne(versionFilter(showToken, expectedVersion), update.set(VERSION_FIELD, newVersion()).toBson(), update.toOptions())
+                .getMatchedCount() > 0;
+        this.showCache.invalidate(showToken, update);
+        return matched;
+    }
+
+    /**
+     * Reads a single string field the {@code Show} entity doesn't map, without loading the show.
+     */
+    public String findStringField(String showToken, String field) {
+        Document document = mongoCollection()
+                .withDocumentClass(Document.class)
+                .find(Filters.eq("showToken", showToken))
+                .projection(Projections.include(field))
+                .first();
+        return document == null ? null : document.getString(field);
+    }
+
+    /**
+     * Applies updates to many shows in one round-trip. Used for buffered heartbeats, which only touch fields no
+     * read-modify-write depends on, so these writes don't change the show version.
+     */
+    public void bulkUpdate(Map<String, ShowUpdate> updatesByShowToken) {
+        List<WriteModel<Show>> writes = new ArrayList<>();
+        updatesByShowToken.forEach((showToken, update) -> {
+            if(!update.isEmpty()) {
+                writes.add(new UpdateOneModel<>(Filters.eq("showToken", showToken), update.toBson(), update.toOptions()));
+            }
+        });
+        if(!writes.isEmpty()) {
+            mongoCollection().bulkWrite(writes, new BulkWriteOptions().ordered(false));
+            updatesByShowToken.forEach(this.showCache::invalidate);
+        }
+    }
+
+    /**
+     * Removes the lowest-position request from the queue in a single findOneAndUpdate. When the show hides played
+     * sequences, the same update raises the visibility count of the dequeued sequence (or of its group), so two
+     * concurrent polls can never hand out the same request.
+     * <p>
+     * The queue is returned as it was before the update and the dequeued request is picked from it with the same
+     * rule the pipeline uses: the first request with the lowest position. An empty queue matches no show and
+     * writes nothing, so the cached show is only evicted when a request was dequeued.
+     */
+    public Optional<Request> dequeueNextRequest(String showToken) {
+        Show before = mongoCollection().findOneAndUpdate(dequeueFilter(showToken), dequeuePipeline(newVersion()), dequeueOptions());
+        if(before != null) {
+            this.showCache.invalidate(showToken);
+        }
+        return dequeuedRequest(before);
+    }
+
+    static Bson projection(String... fields) {
+        List<String> projectedFields = new ArrayList<>(Arrays.asList(fields));
+        projectedFields.add("showToken");
+        projectedFields.add(VERSION_FIELD);
+        return Projections.include(projectedFields);
+    }
+
+    static VersionedShow versionedShow(RawBsonDocument document, CodecRegistry codecRegistry) {
+        Show show = codecRegistry.get(Show.class).decode(document.asBsonReader(), DecoderContext.builder().build());
+        BsonValue version = document.get(VERSION_FIELD);
+        return new VersionedShow(show, version != null && version.isInt64() ? version.asInt64().getValue() : null,
+                document.getByteBuffer().remaining());
+    }
+
+    static Bson versionFilter(String showToken, Long expectedVersion) {
+        return Filters.and(Filters.eq("showToken", showToken), Filters.eq(VERSION_FIELD, expectedVersion));
+    }
+
+    static long newVersion() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    static Bson dequeueFilter(String showToken) {
+        return Filters.and(Filters.eq("showToken", showToken), Filters.exists("requests.0"));
+    }
+
+    static FindOneAndUpdateOptions dequeueOptions() {
+        return new FindOneAndUpdateOptions()
+                .projection(Projections.include("requests"))
+                .returnDocument(ReturnDocument.BEFORE);
+    }
+
+    static Optional<Request> dequeuedRequest(Show before) {
+        if(before == null || before.getRequests() == null) {
+            return Optional.empty();
+        }
+        return before.getRequests().stream().min(Comparator.comparing(Request::getPosition));
+    }
+
+    static List<Bson> dequeuePipeline(long version) {
+        Document hidesSequences = new Document("$ne", List.of("$_hideCount", 0));
+        Document nextGroup = new Document("$ifNull", List.of("$_next.sequence.group", ""));
+        Document ungrouped = new Document("$eq", List.of(nextGroup, ""));
+        Document hides = new Document("$gte", List.of("$_hiddenIndex", 0));
+
+        Document remainingRequests = new Document("$map", new Document()
+                .append("input", new Document("$filter", new Document()
+                        .append("input", new Document("$range", List.of(0, new Document("$size", "$requests"))))
+                        .append("as", "i")
+                        .append("cond", new Document("$ne", List.of("$$i", "$_nextIndex")))))
+                .append("as", "i")
+                .append("in", new Document("$arrayElemAt", List.of("$requests", "$$i"))));
+
+        //Like SequenceIndex, only the first sequence (or group) whose name matches ignoring case is hidden
+        Document hiddenIndex = new Document("$cond", List.of(
+                hidesSequences,
+                new Document("$cond", List.of(
+                        ungrouped,
+                        firstNameIndex("$sequences", "$_next.sequence.name"),
+                        firstNameIndex("$sequenceGroups", nextGroup))),
+                -1));
+
+        return List.of(
+                new Document("$set", new Document("_nextIndex",
+                        new Document("$indexOfArray", List.of("$requests.position", new Document("$min", "$requests.position"))))),
+                new Document("$set", new Document()
+                        .append("_next", new Document("$arrayElemAt", List.of("$requests", "$_nextIndex")))
+                        .append("_hideCount", new Document("$ifNull", List.of("$preferences.hideSequenceCount", 0)))),
+                new Document("$set", new Document("_hiddenIndex", hiddenIndex)),
+                new Document("$set", new Document()
+                        .append("requests", remainingRequests)
+                        .append("sequences", new Document("$cond", List.of(
+                                new Document("$and", List.of(hides, ungrouped)), hideAt("$sequences"), "$sequences")))
+                        .append("sequenceGroups", new Document("$cond", List.of(
+                                new Document("$and", List.of(hides, new Document("$not", List.of(ungrouped)))),
+                                hideAt("$sequenceGroups"), "$sequenceGroups")))
+                        .append(VERSION_FIELD, version)),
+                new Document("$unset", List.of("_nextIndex", "_next", "_hideCount", "_hiddenIndex")));
+    }
+
+    /**
+     * The index of the first element of the array whose name is the given one ignoring case, -1 when there is none
+     * or the array is missing.
+     */
+    private static Document firstNameIndex(String array, Object name) {
+        return new Document("$indexOfArray", List.of(
+                new Document("$map", new Document()
+                        .append("input", new Document("$ifNull", List.of(array, List.of())))
+                        .append("as", "e")
+                        .append("in", new Document("$toLower", "$$e.name"))),
+                new Document("$toLower", name)));
+    }
+
+    /**
+     * The array with the element at {@code _hiddenIndex} hidden for {@code _hideCount} plays. Only used when that
+     * index was found in the array, so the array exists.
+     */
+    private static Document hideAt(String array) {
+        Document element = new Document("$arrayElemAt", List.of(array, "$$i"));
+        return new Document("$map", new Document()
+                .append("input", new Document("$range", List.of(0, new Document("$size", array))))
+                .append("as", "i")
+                .append("in", new Document("$cond", List.of(
+                        new Document("$eq", List.of("$$i", "$_hiddenIndex")),
+                        new Document("$mergeObjects", List.of(element,
+                                new Document("visibilityCount", new Document("$add", List.of("$_hideCount", 1))))),
+                        element))));
+    }
+
+    public boolean set(String showToken, String path, Object value) {
+        return this.update(showToken, new ShowUpdate().set(path, value));
+    }
+
+    public boolean inc(String showToken, String path, Number amount) {
+        return this.update(showToken, new ShowUpdate().inc(path, amount));
+    }
+
+    public boolean push(String showToken, String path, Object value) {
+        return this.update(showToken, new ShowUpdate().push(path, value));
+    }
+
+    public boolean pull(String showToken, String path, Object condition) {
+        return this.update(showToken, new ShowUpdate().pull(path, condition));
+    }
 }
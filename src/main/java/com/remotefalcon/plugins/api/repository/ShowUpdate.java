@@ -0,0 +1,206 @@
+package com.remotefalcon.plugins.api.repository;
+
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Field-level changes to a single show document, applied by {@link ShowRepository#update(String, ShowUpdate)}.
+ * Paths use Mongo dot notation, e.g. {@code preferences.viewerControlEnabled} or {@code requests.$[].viewerRequested}.
+ * <p>
+ * Setting a path replaces any earlier operation on that path or below it, and later operations below a path that
+ * is already set are dropped. Callers mutate the loaded {@code Show} alongside the update, so the value of a set
+ * parent already carries those changes. This lets a caller that ends up rewriting a whole array just {@link #set}
+ * it without undoing finer-grained operations first.
+ * <p>
+ * Paths can use filtered positional operators like {@code sequences.$[hidden].visibilityCount}, with the filter
+ * for the identifier added through {@link #arrayFilter}.
+ * <p>
+ * Updates from several operations are combined into one with {@link #merge}, so they are written atomically.
+ */
+public class ShowUpdate {
+    private final Map<String, Object> sets = new LinkedHashMap<>();
+    private final Map<String, Number> incs = new LinkedHashMap<>();
+    private final Map<String, List<Object>> pushes = new LinkedHashMap<>();
+    private final Map<String, Object> pulls = new LinkedHashMap<>();
+    private final Map<String, Bson> arrayFilters = new LinkedHashMap<>();
+
+    public ShowUpdate set(String path, Object value) {
+        if(this.hasSetParent(path)) {
+            return this;
+        }
+        this.removeOverlapping(path);
+        this.sets.put(path, value);
+        return this;
+    }
+
+    public ShowUpdate inc(String path, Number amount) {
+        if(this.isCoveredBySet(path)) {
+            return this;
+        }
+        this.incs.put(path, amount);
+        return this;
+    }
+
+    public ShowUpdate push(String path, Object value) {
+        if(this.isCoveredBySet(path)) {
+            return this;
+        }
+        this.pushes.computeIfAbsent(path, key -> new ArrayList<>()).add(value);
+        return this;
+    }
+
+    public ShowUpdate pull(String path, Object condition) {
+        if(this.isCoveredBySet(path)) {
+            return this;
+        }
+        this.pulls.put(path, condition);
+        return this;
+    }
+
+    /**
+     * Adds the filter for {@code $[identifier]} in the paths of this update, e.g. {@code hidden} with
+     * {@code Filters.gt("hidden.visibilityCount", 0)}.
+     */
+    public ShowUpdate arrayFilter(String identifier, Bson filter) {
+        this.arrayFilters.put(identifier, filter);
+        return this;
+    }
+
+    /**
+     * Adds the operations of a later update to this one. Where both change the same top-level field below the top
+     * level and the operations can't simply be combined (anything but sets of plain sub-documents, e.g. array
+     * elements, pushes, pulls or incs), the field is rewritten whole with the value {@code wholeField} returns for
+     * it, which must already carry the changes of both updates.
+     */
+    public ShowUpdate merge(ShowUpdate later, Function<String, Object> wholeField) {
+        List<String> rewritten = later.topLevelFields().stream()
+                .filter(field -> this.changesPartly(field) && later.changesPartly(field)
+                        && !(this.onlyPlainSets(field) && later.onlyPlainSets(field)))
+                .toList();
+        later.sets.forEach(this::set);
+        later.incs.forEach(this::inc);
+        later.pushes.forEach((path, values) -> values.forEach(value -> this.push(path, value)));
+        later.pulls.forEach(this::pull);
+        this.arrayFilters.putAll(later.arrayFilters);
+        rewritten.forEach(field -> this.set(field, wholeField.apply(field)));
+        return this;
+    }
+
+    /**
+     * Whether any operation targets this path, one of its parents or one of its children.
+     */
+    public boolean touches(String path) {
+        return this.sets.keySet().stream().anyMatch(key -> overlaps(key, path))
+                || this.incs.keySet().stream().anyMatch(key -> overlaps(key, path))
+                || this.pushes.keySet().stream().anyMatch(key -> overlaps(key, path))
+                || this.pulls.keySet().stream().anyMatch(key -> overlaps(key, path));
+    }
+
+    public boolean isEmpty() {
+        return this.sets.isEmpty() && this.incs.isEmpty() && this.pushes.isEmpty() && this.pulls.isEmpty();
+    }
+
+    public Bson toBson() {
+        List<Bson> updates = new ArrayList<>();
+        this.sets.forEach((path, value) -> updates.add(Updates.set(path, value)));
+        this.incs.forEach((path, amount) -> updates.add(Updates.inc(path, amount)));
+        this.pushes.forEach((path, values) -> updates.add(Updates.pushEach(path, values)));
+        this.pulls.forEach((path, condition) -> updates.add(Updates.pull(path, condition)));
+        return Updates.combine(updates);
+    }
+
+    /**
+     * Options carrying the array filters still used by a path. Mongo rejects filters whose identifier no path
+     * uses, which happens when a later set replaced the operation that used it.
+     */
+    public UpdateOptions toOptions() {
+        List<Bson> usedArrayFilters = new ArrayList<>();
+        this.arrayFilters.forEach((identifier, filter) -> {
+            if(this.usesIdentifier("$[" + identifier + "]")) {
+                usedArrayFilters.add(filter);
+            }
+        });
+        return new UpdateOptions().arrayFilters(usedArrayFilters.isEmpty() ? null : usedArrayFilters);
+    }
+
+    private boolean usesIdentifier(String operator) {
+        return this.sets.keySet().stream().anyMatch(key -> key.contains(operator))
+                || this.incs.keySet().stream().anyMatch(key -> key.contains(operator))
+                || this.pushes.keySet().stream().anyMatch(key -> key.contains(operator))
+                || this.pulls.keySet().stream().anyMatch(key -> key.contains(operator));
+    }
+
+    private List<String> topLevelFields() {
+        List<String> fields = new ArrayList<>();
+        for(Map<String, ?> operations : List.of(this.sets, this.incs, this.pushes, this.pulls)) {
+            operations.keySet().forEach(path -> {
+                String field = topLevelField(path);
+                if(!fields.contains(field)) {
+                    fields.add(field);
+                }
+            });
+        }
+        return fields;
+    }
+
+    /**
+     * Whether the field is changed by anything other than a set of the whole field.
+     */
+    private boolean changesPartly(String field) {
+        return this.sets.keySet().stream().anyMatch(key -> isSameOrChild(key, field) && !key.equals(field))
+                || this.incs.keySet().stream().anyMatch(key -> isSameOrChild(key, field))
+                || this.pushes.keySet().stream().anyMatch(key -> isSameOrChild(key, field))
+                || this.pulls.keySet().stream().anyMatch(key -> isSameOrChild(key, field));
+    }
+
+    private boolean onlyPlainSets(String field) {
+        return this.incs.keySet().stream().noneMatch(key -> isSameOrChild(key, field))
+                && this.pushes.keySet().stream().noneMatch(key -> isSameOrChild(key, field))
+                && this.pulls.keySet().stream().noneMatch(key -> isSameOrChild(key, field))
+                && this.sets.keySet().stream().filter(key -> isSameOrChild(key, field)).noneMatch(ShowUpdate::hasArraySegment);
+    }
+
+    private static String topLevelField(String path) {
+        int dot = path.indexOf('.');
+        return dot < 0 ? path : path.substring(0, dot);
+    }
+
+    private static boolean hasArraySegment(String path) {
+        for(String segment : path.split("\\.")) {
+            if(segment.startsWith("$") || (!segment.isEmpty() && segment.chars().allMatch(Character::isDigit))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isCoveredBySet(String path) {
+        return this.sets.containsKey(path) || this.hasSetParent(path);
+    }
+
+    private boolean hasSetParent(String path) {
+        return this.sets.keySet().stream().anyMatch(key -> isSameOrChild(path, key) && !key.equals(path));
+    }
+
+    private void removeOverlapping(String path) {
+        this.sets.keySet().removeIf(key -> isSameOrChild(key, path));
+        this.incs.keySet().removeIf(key -> isSameOrChild(key, path));
+        this.pushes.keySet().removeIf(key -> isSameOrChild(key, path));
+        this.pulls.keySet().removeIf(key -> isSameOrChild(key, path));
+    }
+
+    private static boolean overlaps(String first, String second) {
+        return isSameOrChild(first, second) || isSameOrChild(second, first);
+    }
+
+    private static boolean isSameOrChild(String path, String parent) {
+        return path.equals(parent) || path.startsWith(parent + ".");
+    }
+}
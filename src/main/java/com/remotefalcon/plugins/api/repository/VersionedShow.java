@@ -0,0 +1,11 @@
+package com.remotefalcon.plugins.api.repository;
+
+import com.remotefalcon.library.quarkus.entity.Show;
+
+/**
+ * A loaded show together with its {@link ShowRepository#VERSION_FIELD}, or a null version when the show has never
+ * been written with one. {@code size} is the size of the loaded document in bytes, 0 when it didn't come straight
+ * from Mongo.
+ */
+public record VersionedShow(Show show, Long version, int size) {
+}
@@ -0,0 +1,88 @@
+package com.remotefalcon.plugins.api.repository;
+
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.remotefalcon.library.models.Stat;
+import com.remotefalcon.plugins.api.entity.VotingWinBucket;
+import io.quarkus.mongodb.panache.PanacheMongoRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@ApplicationScoped
+public class VotingWinRepository implements PanacheMongoRepository<VotingWinBucket> {
+    /**
+     * One bucket per show and day. The unique index also keeps two concurrent first wins of a day from upserting
+     * two buckets. Created or verified at startup by {@link MongoIndexes}.
+     */
+    static final List<IndexModel> INDEXES = List.of(
+            new IndexModel(Indexes.ascending("showToken", "day"), new IndexOptions().unique(true)));
+
+    /**
+     * Appends a win to the show's bucket for the day it happened, creating the bucket on the first win of the day.
+     */
+    public void record(String showToken, Stat.VotingWin votingWin) {
+        mongoCollection().updateOne(
+                bucketFilter(showToken, votingWin.getDateTime().toLocalDate()),
+                recordUpdate(votingWin),
+                new UpdateOptions().upsert(true));
+    }
+
+    /**
+     * How many wins the show has had on that day, read from the bucket's counter.
+     */
+    public int count(String showToken, LocalDate day) {
+        return count(mongoCollection()
+                .find(bucketFilter(showToken, day))
+                .projection(Projections.include("count"))
+                .first());
+    }
+
+    /**
+     * Creates the show's bucket for that day from wins it recorded in its own document before buckets existed.
+     * A bucket that already exists, seeded or filled by live wins, is left alone: returns false in that case.
+     */
+    public boolean seed(String showToken, LocalDate day, List<Document> wins) {
+        try {
+            return mongoCollection().updateOne(
+                    bucketFilter(showToken, day),
+                    Updates.combine(
+                            Updates.setOnInsert("count", wins.size()),
+                            Updates.setOnInsert("wins", wins)),
+                    new UpdateOptions().upsert(true))
+                    .getUpsertedId() != null;
+        }catch (MongoWriteException e) {
+            //A live win upserted the same bucket concurrently, so it already exists
+            if(e.getError().getCategory() == ErrorCategory.DUPLICATE_KEY) {
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    static Bson bucketFilter(String showToken, LocalDate day) {
+        return Filters.and(
+                Filters.eq("showToken", showToken),
+                Filters.eq("day", day));
+    }
+
+    static Bson recordUpdate(Stat.VotingWin votingWin) {
+        return Updates.combine(
+                Updates.inc("count", 1),
+                Updates.push("wins", votingWin));
+    }
+
+    static int count(VotingWinBucket bucket) {
+        return bucket == null || bucket.getCount() == null ? 0 : bucket.getCount();
+    }
+}
@@ -0,0 +1,74 @@
+package com.remotefalcon.plugins.api.repository;
+
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * One-off migration that carries today's voting wins over from the shows' {@code stats.votingWin} into
+ * {@link VotingWinRepository} buckets at startup. Wins used to be recorded in the show document, and the PSA
+ * frequency counts today's wins from the bucket, so without this the count restarts at zero on the day buckets are
+ * rolled out. It scans the whole shows collection, so it is off by default: set {@code VOTING_WINS_SEED_TODAY} for
+ * one startup on the rollout day. Shows that already have a bucket for today are skipped. Older days stay in the
+ * show documents.
+ */
+@ApplicationScoped
+public class VotingWinSeed {
+    private static final Logger LOG = Logger.getLogger(VotingWinSeed.class);
+
+    @Inject
+    ShowRepository showRepository;
+
+    @Inject
+    VotingWinRepository votingWinRepository;
+
+    @ConfigProperty(name = "voting-wins.seed-today")
+    boolean enabled;
+
+    void onStart(@Observes StartupEvent event) {
+        if(!this.enabled) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        LocalDateTime start = today.atStartOfDay();
+        LocalDateTime end = start.plusDays(1);
+        Document winToday = new Document("$and", List.of(
+                new Document("$gte", List.of("$$win.dateTime", start)),
+                new Document("$lt", List.of("$$win.dateTime", end))));
+        List<Bson> pipeline = List.of(
+                Aggregates.match(Filters.elemMatch("stats.votingWin",
+                        Filters.and(Filters.gte("dateTime", start), Filters.lt("dateTime", end)))),
+                Aggregates.project(Projections.fields(
+                        Projections.include("showToken"),
+                        Projections.computed("wins", new Document("$filter", new Document()
+                                .append("input", "$stats.votingWin")
+                                .append("as", "win")
+                                .append("cond", winToday))))));
+        int seeded = 0;
+        try (MongoCursor<Document> shows = this.showRepository.mongoCollection()
+                .withDocumentClass(Document.class)
+                .aggregate(pipeline)
+                .iterator()) {
+            while(shows.hasNext()) {
+                Document show = shows.next();
+                if(this.votingWinRepository.seed(show.getString("showToken"), today, show.getList("wins", Document.class))) {
+                    seeded++;
+                }
+            }
+        }
+        LOG.infof("Voting wins: seeded today's bucket of %d shows from their show documents", seeded);
+    }
+}
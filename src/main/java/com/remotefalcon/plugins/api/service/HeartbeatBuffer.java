@@ -0,0 +1,74 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.remotefalcon.plugins.api.repository.ShowRepository;
+import com.remotefalcon.plugins.api.repository.ShowUpdate;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.jboss.logging.Logger;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Write-behind buffer for the high-frequency, last-value-wins writes FPP makes ({@code fppHeartbeat} and
+ * {@code pluginVersion}). Only the latest values per show token are kept, and they are flushed in one bulk write
+ * every {@code heartbeat.flush-interval} and on shutdown.
+ */
+@ApplicationScoped
+public class HeartbeatBuffer {
+    private static final Logger LOG = Logger.getLogger(HeartbeatBuffer.class);
+
+    @Inject
+    ShowRepository showRepository;
+
+    private final ConcurrentHashMap<String, ShowUpdate> pending = new ConcurrentHashMap<>();
+
+    public void heartbeat(String showToken, LocalDateTime lastFppHeartbeat) {
+        this.pending.compute(showToken, (token, update) -> (update == null ? new ShowUpdate() : update)
+                .set("lastFppHeartbeat", lastFppHeartbeat));
+    }
+
+    public void pluginVersion(String showToken, String pluginVersion, String fppVersion) {
+        this.pending.compute(showToken, (token, update) -> (update == null ? new ShowUpdate() : update)
+                .set("pluginVersion", pluginVersion)
+                .set("fppVersion", fppVersion));
+    }
+
+    @Scheduled(every = "{heartbeat.flush-interval}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void flush() {
+        if(this.pending.isEmpty()) {
+            return;
+        }
+        Map<String, ShowUpdate> batch = new HashMap<>();
+        for(String showToken : this.pending.keySet()) {
+            ShowUpdate update = this.pending.remove(showToken);
+            if(update != null) {
+                batch.put(showToken, update);
+            }
+        }
+        try {
+            this.showRepository.bulkUpdate(batch);
+        }catch (RuntimeException e) {
+            LOG.warnf(e, "Failed to flush %d buffered heartbeats, retrying next interval", batch.size());
+            //Values recorded since the drain are newer and win field by field over the ones we failed to write
+            batch.forEach((showToken, failed) -> this.pending.merge(showToken, failed,
+                    (newer, older) -> older.merge(newer, HeartbeatBuffer::wholeField)));
+        }
+    }
+
+    /**
+     * Never called: buffered updates only set top-level fields, which {@link ShowUpdate#merge} combines directly.
+     */
+    private static Object wholeField(String field) {
+        throw new IllegalStateException("Buffered heartbeat updates only set top-level fields, not " + field);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        this.flush();
+    }
+}
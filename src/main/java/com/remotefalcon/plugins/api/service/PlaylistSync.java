@@ -0,0 +1,153 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.remotefalcon.library.models.PsaSequence;
+import com.remotefalcon.library.models.Sequence;
+import com.remotefalcon.library.quarkus.entity.Show;
+import com.remotefalcon.plugins.api.model.SyncPlaylistDetails;
+import com.remotefalcon.plugins.api.repository.ShowUpdate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Applies a plugin playlist sync to a loaded show as a diff: playlists are fed in with {@link #accept}, then
+ * {@link #finish} works out which sequences were added, deactivated or reindexed and returns only those writes.
+ * The playlists are collected independently of the show, so a sync that hit a write conflict can be finished
+ * again against a reloaded show without reading the request a second time.
+ * <p>
+ * It also keeps a SHA-256 hash of everything the plugin sent. The hash is stored on the show, so the service
+ * can skip a sync that matches the previous one without diffing or writing anything.
+ */
+final class PlaylistSync {
+    static final String HASH_FIELD = "playlistSyncHash";
+
+    private final MessageDigest digest;
+    private final Map<String, SyncPlaylistDetails> playlists = new LinkedHashMap<>();
+    private int playlistCount;
+
+    PlaylistSync() {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        }catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    void accept(SyncPlaylistDetails playlist) {
+        this.playlists.put(playlist.getPlaylistName(), playlist);
+        this.playlistCount++;
+        this.digest.update((playlist.getPlaylistName() + '\u0000'
+                + playlist.getPlaylistIndex() + '\u0000'
+                + playlist.getPlaylistDuration() + '\u0000'
+                + playlist.getPlaylistType() + '\u0001').getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Hash of all playlists accepted so far. Call once, after the last playlist.
+     */
+    String hash() {
+        return HexFormat.of().formatHex(this.digest.digest());
+    }
+
+    /**
+     * Applies the diff to the loaded show and returns the write for it. Mongo can't set array elements and push to
+     * the same array in one update, so a sync that adds sequences rewrites the (already updated) sequence list
+     * instead. The hash is written in the same update, so it is only stored together with the sync.
+     */
+    ShowUpdate finish(Show show, String hash) {
+        List<Sequence> sequences = show.getSequences();
+        Map<String, Integer> existingPositions = new LinkedHashMap<>();
+        for(int i = 0; i < sequences.size(); i++) {
+            existingPositions.putIfAbsent(sequences.get(i).getName(), i);
+        }
+
+        ShowUpdate update = new ShowUpdate();
+        int inactiveSequenceOrder = this.playlistCount + 1;
+        for(int i = 0; i < sequences.size(); i++) {
+            if(!this.playlists.containsKey(sequences.get(i).getName())) {
+                updateSequence(sequences.get(i), update, i, false, null, inactiveSequenceOrder);
+                inactiveSequenceOrder++;
+            }
+        }
+
+        Integer lastActiveOrder = null;
+        for(Sequence sequence : sequences) {
+            if(sequence.getActive() && (lastActiveOrder == null || sequence.getOrder() > lastActiveOrder)) {
+                lastActiveOrder = sequence.getOrder();
+            }
+        }
+        int sequenceOrder = lastActiveOrder != null ? lastActiveOrder : 0;
+
+        List<Sequence> newSequences = new ArrayList<>();
+        for(SyncPlaylistDetails playlist : this.playlists.values()) {
+            int index = playlist.getPlaylistIndex() != null ? playlist.getPlaylistIndex() : -1;
+            Integer position = existingPositions.get(playlist.getPlaylistName());
+            if(position == null) {
+                newSequences.add(Sequence.builder()
+                        .active(true)
+                        .displayName(playlist.getPlaylistName())
+                        .duration(playlist.getPlaylistDuration())
+                        .imageUrl("")
+                        .index(index)
+                        .name(playlist.getPlaylistName())
+                        .order(sequenceOrder)
+                        .visible(true)
+                        .visibilityCount(0)
+                        .type(playlist.getPlaylistType() == null ? "SEQUENCE" : playlist.getPlaylistType())
+                        .build());
+                sequenceOrder++;
+            }else {
+                updateSequence(sequences.get(position), update, position, true, index, sequences.get(position).getOrder());
+            }
+        }
+        if(!newSequences.isEmpty()) {
+            sequences.addAll(newSequences);
+            update.set("sequences", sequences);
+        }
+
+        this.removeUnsyncedPsaSequences(show, update);
+
+        return update.set(HASH_FIELD, hash);
+    }
+
+    private static void updateSequence(Sequence sequence, ShowUpdate update, int position, boolean active, Integer index, Integer order) {
+        String path = "sequences." + position;
+        if(!Objects.equals(sequence.getActive(), active)) {
+            sequence.setActive(active);
+            update.set(path + ".active", active);
+        }
+        if(!Objects.equals(sequence.getIndex(), index)) {
+            sequence.setIndex(index);
+            update.set(path + ".index", index);
+        }
+        if(!Objects.equals(sequence.getOrder(), order)) {
+            sequence.setOrder(order);
+            update.set(path + ".order", order);
+        }
+    }
+
+    private void removeUnsyncedPsaSequences(Show show, ShowUpdate update) {
+        List<PsaSequence> psaSequences = show.getPsaSequences() != null ? show.getPsaSequences() : new ArrayList<>();
+        List<PsaSequence> syncedPsaSequences = new ArrayList<>();
+        for(PsaSequence psa : psaSequences) {
+            if(this.playlists.containsKey(psa.getName())) {
+                syncedPsaSequences.add(psa);
+            }
+        }
+        if(syncedPsaSequences.size() != psaSequences.size()) {
+            show.setPsaSequences(syncedPsaSequences);
+            update.set("psaSequences", syncedPsaSequences);
+        }
+        if(syncedPsaSequences.isEmpty() && !Boolean.FALSE.equals(show.getPreferences().getPsaEnabled())) {
+            show.getPreferences().setPsaEnabled(false);
+            update.set("preferences.psaEnabled", false);
+        }
+    }
+}
@@ -1,26 +1,35 @@
 package com.remotefalcon.plugins.api.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.model.Filters;
 import com.remotefalcon.library.enums.ViewerControlMode;
 import com.remotefalcon.library.models.*;
 import com.remotefalcon.library.quarkus.entity.Show;
 import com.remotefalcon.plugins.api.context.ShowContext;
 import com.remotefalcon.plugins.api.model.*;
 import com.remotefalcon.plugins.api.repository.ShowRepository;
+import com.remotefalcon.plugins.api.repository.ShowUpdate;
+import com.remotefalcon.plugins.api.repository.VersionedShow;
+import com.remotefalcon.plugins.api.repository.VotingWinRepository;
 import jakarta.enterprise.context.RequestScoped;
 import jakarta.inject.Inject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
 
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
 import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.Response;
 
 @RequestScoped
 public class PluginService {
+    static final String[] HIGHEST_VOTED_FIELDS = {"votes", "sequences", "sequenceGroups", "psaSequences", "preferences", "playingNow"};
+    static final String[] SYNC_FIELDS = {"sequences", "psaSequences", "preferences"};
+    private static final int MAX_BATCH_OPERATIONS = 10;
 
     @Inject
     ShowContext showContext;
@@ -29,155 +38,129 @@ public class PluginService {
     ShowRepository showRepository;
 
     @Inject
-    @ConfigProperty(name = "sequence.limit")
-    int sequenceLimit;
+    VotingWinRepository votingWinRepository;
 
-    public NextPlaylistResponse nextPlaylistInQueue() {
-        Show show = showContext.getShow();
-        NextPlaylistResponse defaultResponse = NextPlaylistResponse.builder()
-                .nextPlaylist(null)
-                .playlistIndex(-1)
-                .build();
-        if(CollectionUtils.isEmpty(show.getRequests())) {
-            return defaultResponse;
-        }
-        Optional<Request> nextRequest = show.getRequests().stream().min(Comparator.comparing(Request::getPosition));
-        if(nextRequest.isEmpty()) {
-            return defaultResponse;
-        }
-        this.updateVisibilityCounts(show, nextRequest.get());
+    @Inject
+    PollingService pollingService;
 
-        show.getRequests().remove(nextRequest.get());
+    @Inject
+    ShowLocks showLocks;
 
-        this.showRepository.persistOrUpdate(show);
+    @Inject
+    ShowUnitOfWork unitOfWork;
 
-        return NextPlaylistResponse.builder()
-                .nextPlaylist(nextRequest.get().getSequence().getName())
-                .playlistIndex(nextRequest.get().getSequence().getIndex())
-                .build();
-    }
+    @Inject
+    ObjectMapper objectMapper;
 
-    private void updateVisibilityCounts(Show show, Request request) {
-        if(show.getPreferences().getHideSequenceCount() != 0) {
-            if(!StringUtils.isEmpty(request.getSequence().getGroup())) {
-                Optional<SequenceGroup> sequenceGroup = show.getSequenceGroups().stream()
-                        .filter((group) -> StringUtils.equalsIgnoreCase(group.getName(), request.getSequence().getGroup()))
-                        .findFirst();
-                sequenceGroup.ifPresent(group -> group.setVisibilityCount(show.getPreferences().getHideSequenceCount() + 1));
-            }else {
-                Optional<Sequence> sequence = show.getSequences().stream()
-                        .filter((seq) -> StringUtils.equalsIgnoreCase(seq.getName(), request.getSequence().getName()))
-                        .findFirst();
-                sequence.ifPresent(seq -> seq.setVisibilityCount(show.getPreferences().getHideSequenceCount() + 1));
-            }
-        }
-    }
+    @Inject
+    @ConfigProperty(name = "show.write.max-attempts")
+    int maxWriteAttempts;
 
-    public PluginResponse updatePlaylistQueue() {
-        Show show = showContext.getShow();
-        if (CollectionUtils.isEmpty(show.getRequests())) {
-            return PluginResponse.builder().message("Queue Empty").build();
-        } else {
-            return PluginResponse.builder().message("Success").build();
-        }
-    }
+    @Inject
+    @ConfigProperty(name = "sequence.limit")
+    int sequenceLimit;
 
-    public PluginResponse syncPlaylists(SyncPlaylistRequest request) {
-        Show show = showContext.getShow();
-        if (request.getPlaylists().size() > this.sequenceLimit) {
-            throw new WebApplicationException(
-                    Response.status(Response.Status.BAD_REQUEST)
-                            .entity(PluginResponse.builder().message("Cannot sync more than " + this.sequenceLimit + " sequences").build())
-                            .build()
-            );
-        }
-        Set<Sequence> updatedSequences = new HashSet<>();
-        updatedSequences.addAll(this.getSequencesToDelete(request, show));
-        updatedSequences.addAll(this.addNewSequences(request, show));
-        show.setSequences(updatedSequences.stream().toList());
-
-        List<PsaSequence> updatedPsaSequences = this.updatePsaSequences(request, show);
-        show.setPsaSequences(updatedPsaSequences);
-        if(CollectionUtils.isEmpty(updatedPsaSequences)) {
-            show.getPreferences().setPsaEnabled(false);
-        }
+    private SequenceIndex sequenceIndex;
 
-        this.showRepository.persistOrUpdate(show);
-        return PluginResponse.builder().message("Success").build();
-    }
+    //How many read-modify-write operations are running, more than one when a batch runs them
+    private int mutationDepth;
 
-    private List<Sequence> getSequencesToDelete(SyncPlaylistRequest request, Show show) {
-        List<String> playlistNamesInRequest = request.getPlaylists().stream().map(SyncPlaylistDetails::getPlaylistName).toList();
-        List<Sequence> sequencesToDelete = new ArrayList<>();
-        int inactiveSequenceOrder = request.getPlaylists().size() + 1;
-        for(Sequence existingSequence : show.getSequences()) {
-            if(!playlistNamesInRequest.contains(existingSequence.getName())) {
-                existingSequence.setActive(false);
-                existingSequence.setIndex(null);
-                existingSequence.setOrder(inactiveSequenceOrder);
-                sequencesToDelete.add(existingSequence);
-                inactiveSequenceOrder++;
-            }
-        }
-        return sequencesToDelete;
+    /**
+     * The dequeue of a batch, which always runs inside the batch's {@link #mutate}. Polls are answered by
+     * {@link PollingService} and long polls by {@link ReactivePluginService}, both dequeuing in Mongo.
+     */
+    private NextPlaylistResponse nextPlaylistInQueue() {
+        return nextPlaylistResponse(this.dequeueLoadedRequest(showContext.getShow()));
     }
 
-    private List<Sequence> addNewSequences(SyncPlaylistRequest request, Show show) {
-        Set<String> existingSequences = show.getSequences().stream().map(Sequence::getName).collect(Collectors.toSet());
-        List<Sequence> sequencesToSync = new ArrayList<>();
-        Optional<Sequence> lastSequenceInOrder = show.getSequences().stream()
-                .filter(Sequence::getActive)
-                .max(Comparator.comparing(Sequence::getOrder));
-        int sequenceOrder = 0;
-        if(lastSequenceInOrder.isPresent()) {
-            sequenceOrder = lastSequenceInOrder.get().getOrder();
+    /**
+     * Dequeues from the loaded show rather than in Mongo, when a batch already holds the whole queue and the dequeue
+     * has to be part of its write. Mirrors
+     * {@link ShowRepository#dequeueNextRequest}: the first request with the lowest position is removed, and the
+     * visibility count of its sequence (or group) is raised when the show hides played sequences.
+     */
+    private Optional<Request> dequeueLoadedRequest(Show show) {
+        if(CollectionUtils.isEmpty(show.getRequests())) {
+            return Optional.empty();
         }
-        AtomicInteger atomicSequenceOrder = new AtomicInteger(sequenceOrder);
-        for(SyncPlaylistDetails playlistInRequest : request.getPlaylists()) {
-            if(!existingSequences.contains(playlistInRequest.getPlaylistName())) {
-                sequencesToSync.add(Sequence.builder()
-                        .active(true)
-                        .displayName(playlistInRequest.getPlaylistName())
-                        .duration(playlistInRequest.getPlaylistDuration())
-                        .imageUrl("")
-                        .index(playlistInRequest.getPlaylistIndex() != null ? playlistInRequest.getPlaylistIndex() : -1)
-                        .name(playlistInRequest.getPlaylistName())
-                        .order(atomicSequenceOrder.get())
-                        .visible(true)
-                        .visibilityCount(0)
-                        .type(playlistInRequest.getPlaylistType() == null ? "SEQUENCE" : playlistInRequest.getPlaylistType())
-                        .build());
-                atomicSequenceOrder.getAndIncrement();
+        Request nextRequest = show.getRequests().stream().min(Comparator.comparing(Request::getPosition)).get();
+        show.getRequests().remove(nextRequest);
+        ShowUpdate update = new ShowUpdate().set("requests", show.getRequests());
+
+        int hideSequenceCount = show.getPreferences() != null && show.getPreferences().getHideSequenceCount() != null
+                ? show.getPreferences().getHideSequenceCount() : 0;
+        if(hideSequenceCount != 0 && nextRequest.getSequence() != null) {
+            SequenceIndex sequenceIndex = this.sequenceIndex(show);
+            String group = nextRequest.getSequence().getGroup();
+            if(StringUtils.isEmpty(group)) {
+                Sequence sequence = sequenceIndex.sequence(nextRequest.getSequence().getName());
+                if(sequence != null) {
+                    int position = sequenceIndex.sequencePosition(sequence.getName());
+                    sequence.setVisibilityCount(hideSequenceCount + 1);
+                    sequenceIndex.sequenceHidden(position);
+                    update.set("sequences." + position + ".visibilityCount", sequence.getVisibilityCount());
+                }
             }else {
-                show.getSequences().forEach(sequence -> {
-                    if(StringUtils.equalsIgnoreCase(sequence.getName(), playlistInRequest.getPlaylistName())) {
-                        sequence.setIndex(playlistInRequest.getPlaylistIndex() != null ? playlistInRequest.getPlaylistIndex() : -1);
-                        sequence.setActive(true);
-                        sequencesToSync.add(sequence);
-                    }
-                });
+                SequenceGroup sequenceGroup = sequenceIndex.sequenceGroup(group);
+                if(sequenceGroup != null) {
+                    int position = sequenceIndex.sequenceGroupPosition(group);
+                    sequenceGroup.setVisibilityCount(hideSequenceCount + 1);
+                    sequenceIndex.sequenceGroupHidden(position);
+                    update.set("sequenceGroups." + position + ".visibilityCount", sequenceGroup.getVisibilityCount());
+                }
             }
         }
-        return sequencesToSync;
+        this.updateIfUnchanged(update);
+        return Optional.of(nextRequest);
     }
 
-    private List<PsaSequence> updatePsaSequences(SyncPlaylistRequest request, Show show) {
-        List<PsaSequence> updatedPsaSequences = new ArrayList<>();
-        List<String> playlistNamesInRequest = request.getPlaylists().stream().map(SyncPlaylistDetails::getPlaylistName).toList();
-        if(CollectionUtils.isNotEmpty(show.getPsaSequences())) {
-            for(PsaSequence psa : show.getPsaSequences()) {
-                if(playlistNamesInRequest.contains(psa.getName())) {
-                    updatedPsaSequences.add(psa);
-                }
-            }
+    static NextPlaylistResponse nextPlaylistResponse(Optional<Request> nextRequest) {
+        if(nextRequest.isEmpty()) {
+            return NextPlaylistResponse.builder()
+                    .nextPlaylist(null)
+                    .playlistIndex(-1)
+                    .build();
         }
-        return updatedPsaSequences;
+        return NextPlaylistResponse.builder()
+                .nextPlaylist(nextRequest.get().getSequence().getName())
+                .playlistIndex(nextRequest.get().getSequence().getIndex())
+                .build();
+    }
+
+    /**
+     * Syncs the plugin's playlists from a {@code SyncPlaylistRequest} body, read as a stream (see
+     * {@link SyncPlaylistReader}). The body is read before the show lock is taken, so a slow upload doesn't hold up
+     * other writes to the show, and a conflict is retried without reading it again.
+     * <p>
+     * The filter only checks that the show exists. The stored hash of the previous sync is compared first, and the
+     * sequences are only loaded when the sync changes them.
+     */
+    public PluginResponse syncPlaylists(InputStream body) {
+        String showToken = showContext.getShow().getShowToken();
+        PlaylistSync playlistSync = new PlaylistSync();
+        SyncPlaylistReader.read(body, this.objectMapper, this.sequenceLimit, playlistSync::accept);
+        String syncHash = playlistSync.hash();
+        if(syncHash.equals(this.showRepository.findStringField(showToken, PlaylistSync.HASH_FIELD))) {
+            return PluginResponse.builder().message("Success").build();
+        }
+        showContext.setFields(SYNC_FIELDS);
+        if(!this.reloadShow(showToken)) {
+            throw new WebApplicationException(Response.Status.NOT_FOUND);
+        }
+        return this.mutate(() -> {
+            this.updateIfUnchanged(playlistSync.finish(showContext.getShow(), syncHash));
+            return PluginResponse.builder().message("Success").build();
+        });
     }
 
     public PluginResponse updateWhatsPlaying(UpdateWhatsPlayingRequest request) {
         if(request == null || StringUtils.isEmpty(request.getPlaylist())) {
             return PluginResponse.builder().build();
         }
+        return this.mutate(() -> this.applyWhatsPlaying(request));
+    }
+
+    private PluginResponse applyWhatsPlaying(UpdateWhatsPlayingRequest request) {
         Show show = showContext.getShow();
         if(show.getPreferences() == null) {
             throw new WebApplicationException(
@@ -194,50 +177,51 @@ public class PluginService {
         }else {
             show.setPlayingNow(request.getPlaylist());
         }
+        ShowUpdate update = new ShowUpdate().set("playingNow", show.getPlayingNow());
         int sequencesPlayed = show.getPreferences().getSequencesPlayed() != null ? show.getPreferences().getSequencesPlayed() : 0;
-        Optional<Sequence> whatsPlayingSequence = show.getSequences().stream()
-                .filter(sequence -> StringUtils.equalsIgnoreCase(sequence.getName(), request.getPlaylist()))
-                .findFirst();
-        Optional<PsaSequence> psaSequence = show.getPsaSequences().stream()
-                .filter(psa -> StringUtils.equalsIgnoreCase(psa.getName(), request.getPlaylist()))
-                .findFirst();
-        if(psaSequence.isPresent()) {
+        SequenceIndex sequenceIndex = this.sequenceIndex(show);
+        Sequence whatsPlayingSequence = sequenceIndex.sequence(request.getPlaylist());
+        if(sequenceIndex.isPsa(request.getPlaylist())) {
             sequencesPlayed = 0;
         }else {
             sequencesPlayed++;
         }
-        if(whatsPlayingSequence.isPresent() && StringUtils.isNotEmpty(whatsPlayingSequence.get().getGroup())) {
+        if(whatsPlayingSequence != null && StringUtils.isNotEmpty(whatsPlayingSequence.getGroup())) {
             sequencesPlayed--;
         }
         show.getPreferences().setSequencesPlayed(sequencesPlayed);
+        update.set("preferences.sequencesPlayed", sequencesPlayed);
 
-        Set<Sequence> sequenceSet = show.getSequences().stream()
-                .peek(sequence -> {
-                    if(sequence.getVisibilityCount() > 0) {
-                        sequence.setVisibilityCount(sequence.getVisibilityCount() - 1);
-                    }
-                }).collect(Collectors.toSet());
-
-        show.setSequences(sequenceSet.stream().toList());
-
-        show.setSequenceGroups(show.getSequenceGroups().stream()
-                .peek(sequenceGroup -> {
-                    if(sequenceGroup.getVisibilityCount() > 0) {
-                        sequenceGroup.setVisibilityCount(sequenceGroup.getVisibilityCount() - 1);
-                    }
-                }).toList());
+        decrementVisibilityCounts(sequenceIndex, update);
 
         //Managed PSA
-        this.handleManagedPSA(sequencesPlayed, show);
+        this.handleManagedPSA(sequencesPlayed, show, update);
 
-        this.clearViewersVotedAndRequested(show);
+        this.clearViewersVotedAndRequested(show, update);
 
-        this.showRepository.persistOrUpdate(show);
+        this.updateIfUnchanged(update);
 
         return PluginResponse.builder().currentPlaylist(request.getPlaylist()).build();
     }
 
-    private void handleManagedPSA(int sequencesPlayed, Show show) {
+    /**
+     * Counts down every hidden sequence and group by one play. The loaded show is changed in place through the
+     * hidden entries tracked by the sequence index, and the write is a single filtered {@code $inc} per array that
+     * only touches elements still above zero, instead of rewriting both arrays. It is only added when something
+     * was hidden, as Mongo rejects array updates on a missing array.
+     */
+    static void decrementVisibilityCounts(SequenceIndex sequenceIndex, ShowUpdate update) {
+        if(sequenceIndex.countDownHiddenSequences()) {
+            update.inc("sequences.$[hiddenSequence].visibilityCount", -1)
+                    .arrayFilter("hiddenSequence", Filters.gt("hiddenSequence.visibilityCount", 0));
+        }
+        if(sequenceIndex.countDownHiddenSequenceGroups()) {
+            update.inc("sequenceGroups.$[hiddenGroup].visibilityCount", -1)
+                    .arrayFilter("hiddenGroup", Filters.gt("hiddenGroup.visibilityCount", 0));
+        }
+    }
+
+    private void handleManagedPSA(int sequencesPlayed, Show show, ShowUpdate update) {
         if(show.getPsaSequences() != null && !show.getPsaSequences().isEmpty()) {
             if(sequencesPlayed != 0 && show.getPreferences().getPsaEnabled() && show.getPreferences().getManagePsa()
                     && show.getPreferences().getPsaFrequency() != null && show.getPreferences().getPsaFrequency() > 0) {
@@ -248,17 +232,15 @@ public class PluginService {
                             .filter(psaSequence -> psaSequence.getOrder() != null)
                             .min(Comparator.comparing(PsaSequence::getLastPlayed)
                                     .thenComparing(PsaSequence::getOrder));
-                    boolean isPSAPlayingNow = show.getPsaSequences().stream()
-                            .anyMatch(psaSequence -> StringUtils.equalsIgnoreCase(show.getPlayingNow(), psaSequence.getName()));
+                    SequenceIndex sequenceIndex = this.sequenceIndex(show);
+                    boolean isPSAPlayingNow = sequenceIndex.isPsa(show.getPlayingNow());
                     if(nextPsaSequence.isPresent() && !isPSAPlayingNow) {
-                        Optional<Sequence> sequenceToAdd = show.getSequences().stream()
-                                .filter(sequence -> StringUtils.equalsIgnoreCase(sequence.getName(), nextPsaSequence.get().getName()))
-                                .findFirst();
-                        show.getPsaSequences().get(show.getPsaSequences().indexOf(nextPsaSequence.get())).setLastPlayed(LocalDateTime.now());
-                        if(show.getPreferences().getViewerControlMode() == ViewerControlMode.JUKEBOX) {
-                            sequenceToAdd.ifPresent(sequence -> this.setPSASequenceRequest(show, sequence));
-                        }else if(show.getPreferences().getViewerControlMode() == ViewerControlMode.VOTING) {
-                            sequenceToAdd.ifPresent(sequence -> this.setPSASequenceVote(show, sequence));
+                        Sequence sequenceToAdd = sequenceIndex.sequence(nextPsaSequence.get().getName());
+                        setPSALastPlayed(show, nextPsaSequence.get(), update);
+                        if(sequenceToAdd != null && show.getPreferences().getViewerControlMode() == ViewerControlMode.JUKEBOX) {
+                            this.setPSASequenceRequest(show, sequenceToAdd, update);
+                        }else if(sequenceToAdd != null && show.getPreferences().getViewerControlMode() == ViewerControlMode.VOTING) {
+                            this.setPSASequenceVote(show, sequenceToAdd, update);
                         }
                     }
                 }
@@ -266,46 +248,69 @@ public class PluginService {
         }
     }
 
-    private void setPSASequenceRequest(Show show, Sequence requestedSequence) {
-        List<String> psaSequences = show.getPsaSequences().stream().map(PsaSequence::getName).toList();
-        boolean isPsaInJukebox = show.getRequests().stream().anyMatch(request -> psaSequences.contains(request.getSequence().getName()));
+    static void setPSALastPlayed(Show show, PsaSequence psaSequence, ShowUpdate update) {
+        int psaIndex = show.getPsaSequences().indexOf(psaSequence);
+        show.getPsaSequences().get(psaIndex).setLastPlayed(LocalDateTime.now());
+        update.set("psaSequences." + psaIndex + ".lastPlayed", show.getPsaSequences().get(psaIndex).getLastPlayed());
+    }
+
+    private void setPSASequenceRequest(Show show, Sequence requestedSequence, ShowUpdate update) {
+        SequenceIndex sequenceIndex = this.sequenceIndex(show);
+        boolean isPsaInJukebox = show.getRequests().stream().anyMatch(request -> sequenceIndex.isPsa(request.getSequence().getName()));
         if(!isPsaInJukebox) {
-            show.getVotes().add(Vote.builder()
+            Vote psaVote = Vote.builder()
                     .sequence(requestedSequence)
                     .ownerVoted(false)
                     .lastVoteTime(LocalDateTime.now())
                     .votes(2000)
-                    .build());
-            this.showRepository.persistOrUpdate(show);
+                    .build();
+            show.getVotes().add(psaVote);
+            update.push("votes", psaVote);
         }
-        show.getRequests().add(Request.builder()
+        Request psaRequest = Request.builder()
                 .sequence(requestedSequence)
                 .ownerRequested(false)
                 .position(0)
-                .build());
-        this.showRepository.persistOrUpdate(show);
+                .build();
+        show.getRequests().add(psaRequest);
+        update.push("requests", psaRequest);
     }
 
-    private void setPSASequenceVote(Show show, Sequence requestedSequence) {
-        List<String> psaSequences = show.getPsaSequences().stream().map(PsaSequence::getName).toList();
-        boolean isPsaInVotes = show.getVotes().stream().anyMatch(vote -> psaSequences.contains(vote.getSequence().getName()));
+    private void setPSASequenceVote(Show show, Sequence requestedSequence, ShowUpdate update) {
+        SequenceIndex sequenceIndex = this.sequenceIndex(show);
+        boolean isPsaInVotes = show.getVotes().stream().anyMatch(vote -> sequenceIndex.isPsa(vote.getSequence().getName()));
         if(!isPsaInVotes) {
-            show.getVotes().add(Vote.builder()
+            Vote psaVote = Vote.builder()
                     .sequence(requestedSequence)
                     .ownerVoted(false)
                     .lastVoteTime(LocalDateTime.now())
                     .votes(2000)
-                    .build());
-            this.showRepository.persistOrUpdate(show);
+                    .build();
+            show.getVotes().add(psaVote);
+            update.push("votes", psaVote);
         }
     }
 
-    private void clearViewersVotedAndRequested(Show show) {
+    private void clearViewersVotedAndRequested(Show show, ShowUpdate update) {
         if(CollectionUtils.isNotEmpty(show.getRequests())) {
             show.getRequests().forEach(request -> request.setViewerRequested(null));
+            this.setOnAllElements(update, "requests", show.getRequests(), "viewerRequested", null);
         }
         if(CollectionUtils.isNotEmpty(show.getVotes())) {
             show.getVotes().forEach(vote -> vote.setViewersVoted(new ArrayList<>()));
+            this.setOnAllElements(update, "votes", show.getVotes(), "viewersVoted", new ArrayList<>());
+        }
+    }
+
+    /**
+     * Sets one property on every element of an array. Mongo rejects a positional update on an array that is
+     * also pushed to in the same update, so in that case the whole (already updated) array is written instead.
+     */
+    private void setOnAllElements(ShowUpdate update, String field, List<?> elements, String property, Object value) {
+        if(update.touches(field)) {
+            update.set(field, elements);
+        }else {
+            update.set(field + ".$[]." + property, value);
         }
     }
 
@@ -318,228 +323,166 @@ public class PluginService {
                             .build()
             );
         }
+        ShowUpdate update = new ShowUpdate();
         if(StringUtils.isEmpty(request.getSequence())) {
             show.setPlayingNow("");
             show.setPlayingNext("");
             show.setPlayingNextFromSchedule("");
+            update.set("playingNow", "").set("playingNext", "").set("playingNextFromSchedule", "");
         }else {
             show.setPlayingNextFromSchedule(request.getSequence());
+            update.set("playingNextFromSchedule", request.getSequence());
         }
-        this.showRepository.persistOrUpdate(show);
+        this.write(update);
         return PluginResponse.builder().nextScheduledSequence(request.getSequence()).build();
     }
 
-    public PluginResponse viewerControlMode() {
-        Show show = showContext.getShow();
-        String viewerControlMode = show.getPreferences().getViewerControlMode().name().toLowerCase();
-        return PluginResponse.builder()
-                .viewerControlMode(viewerControlMode)
-                .build();
+    public HighestVotedPlaylistResponse highestVotedPlaylist() {
+        //Most polls find no votes, answer those without taking the show lock
+        if(CollectionUtils.isEmpty(showContext.getShow().getVotes())) {
+            return noVotesResponse();
+        }
+        return this.mutate(() -> {
+            Show show = showContext.getShow();
+            if(CollectionUtils.isEmpty(show.getVotes())) {
+                return noVotesResponse();
+            }
+            VoteResolution resolution = new VoteResolution(show, this.sequenceIndex(show));
+            if(!resolution.resolve()) {
+                return null;
+            }
+            Stat.VotingWin votingWin = resolution.votingWin();
+            if(resolution.psaDue()) {
+                resolution.applyPsa(this.votingWinRepository.count(show.getShowToken(), votingWin.getDateTime().toLocalDate()) + 1);
+            }
+            this.updateIfUnchanged(resolution.update());
+            //Only recorded once the resolution is written, so a retry can't count the win twice
+            if(votingWin != null) {
+                this.afterWrite(() -> this.votingWinRepository.record(show.getShowToken(), votingWin));
+            }
+            return resolution.response();
+        });
     }
 
-    public HighestVotedPlaylistResponse highestVotedPlaylist() {
-        Show show = showContext.getShow();
-        HighestVotedPlaylistResponse response = HighestVotedPlaylistResponse.builder()
+    static HighestVotedPlaylistResponse noVotesResponse() {
+        return HighestVotedPlaylistResponse.builder()
                 .winningPlaylist(null)
                 .playlistIndex(-1)
                 .build();
-        //Get the sequence with the most votes. If there is a tie, get the sequence with the earliest vote time
-        if(CollectionUtils.isNotEmpty(show.getVotes())) {
-            Optional<Vote> winningVote = show.getVotes().stream()
-                    .max(Comparator.comparing(Vote::getVotes)
-                            .thenComparing(Comparator.comparing(Vote::getLastVoteTime).reversed()));
-            if(winningVote.isPresent()) {
-                SequenceGroup winningSequenceGroup = winningVote.get().getSequenceGroup();
-                if(winningSequenceGroup != null) {
-                    return this.processWinningGroup(winningVote.get(), show);
-                }else {
-                    return this.processWinningVote(winningVote.get(), show);
-                }
-            }
-        }
-        this.showRepository.persistOrUpdate(show);
-
-        return response;
     }
 
-    private HighestVotedPlaylistResponse processWinningGroup(Vote winningVote, Show show) {
-        SequenceGroup winningSequenceGroup = winningVote.getSequenceGroup();
-        show.getVotes().remove(winningVote);
-
-        if(winningSequenceGroup != null) {
-            Optional<SequenceGroup> actualSequenceGroup = show.getSequenceGroups().stream()
-                    .filter(sequenceGroup -> StringUtils.equalsIgnoreCase(sequenceGroup.getName(), winningSequenceGroup.getName()))
-                    .findFirst();
-
-            if(actualSequenceGroup.isPresent()) {
-                List<Sequence> sequencesInGroup = new ArrayList<>(show.getSequences().stream()
-                        .filter(sequence -> StringUtils.equalsIgnoreCase(actualSequenceGroup.get().getName(), sequence.getGroup()))
-                        .toList());
-                if(CollectionUtils.isEmpty(sequencesInGroup)) {
-                    return null;
+    /**
+     * Runs a read-modify-write operation on the show of this request. Operations on the same show are serialized
+     * on this instance by {@link ShowLocks}. The operation records its changes through {@link #updateIfUnchanged},
+     * and they are flushed as soon as it finishes. If the show changed since it was loaded (on another instance or
+     * the viewer side) the show is reloaded and the operation runs again, up to {@code show.write.max-attempts}
+     * times. Operations nested in another one (the operations of a batch) are flushed with the outer one.
+     */
+    private <T> T mutate(Supplier<T> operation) {
+        if(this.mutationDepth > 0) {
+            return operation.get();
+        }
+        String showToken = showContext.getShow().getShowToken();
+        Lock lock = this.showLocks.lock(showToken);
+        this.mutationDepth++;
+        try {
+            for(int attempt = 1; ; attempt++) {
+                T result = operation.get();
+                if(this.unitOfWork.flush()) {
+                    return result;
                 }
-
-                show.getStats().getVotingWin().add(Stat.VotingWin.builder()
-                        .name(actualSequenceGroup.get().getName())
-                        .dateTime(LocalDateTime.now())
-                        .build());
-
-                //Set visibility counts
-                if(show.getPreferences().getHideSequenceCount() != 0) {
-                    actualSequenceGroup.get().setVisibilityCount(show.getPreferences().getHideSequenceCount() + 1);
+                if(attempt >= this.maxWriteAttempts) {
+                    throw writeConflict();
                 }
-
-                int voteCount = 2099;
-
-                Vote updatedWinningVote = Vote.builder()
-                        .votes(voteCount)
-                        .lastVoteTime(LocalDateTime.now())
-                        .ownerVoted(false)
-                        .sequence(sequencesInGroup.getFirst())
-                        .build();
-                voteCount--;
-
-                sequencesInGroup.removeFirst();
-
-                List<Vote> sequencesInGroupVotes = new ArrayList<>();
-                for(Sequence groupedSequence : sequencesInGroup) {
-                    sequencesInGroupVotes.add(Vote.builder()
-                            .votes(voteCount)
-                            .lastVoteTime(LocalDateTime.now())
-                            .ownerVoted(false)
-                            .sequence(groupedSequence)
-                            .build());
-                    voteCount--;
+                if(!this.reloadShow(showToken)) {
+                    throw new WebApplicationException(Response.Status.NOT_FOUND);
                 }
-                show.getVotes().addAll(sequencesInGroupVotes);
-                return this.processWinningVote(updatedWinningVote, show);
             }
+        }finally {
+            this.mutationDepth--;
+            lock.unlock();
         }
-        return null;
     }
 
-    private HighestVotedPlaylistResponse processWinningVote(Vote winningVote, Show show) {
-        Sequence winningSequence = winningVote.getSequence();
-        show.getVotes().remove(winningVote);
-
-        if(winningSequence != null) {
-            boolean winningSequenceIsPSA = show.getPsaSequences().stream()
-                    .anyMatch(psaSequence -> StringUtils.equalsIgnoreCase(psaSequence.getName(), winningSequence.getName()));
-            Optional<Sequence> actualSequence = show.getSequences().stream()
-                    .filter(sequence -> StringUtils.equalsIgnoreCase(sequence.getName(), winningSequence.getName()))
-                    .findFirst();
-
-            if(actualSequence.isPresent()) {
-                boolean noGroupedSequencesHaveVotes = show.getVotes().stream()
-                        .noneMatch(vote -> vote.getSequence() == null || StringUtils.isNotEmpty(vote.getSequence().getGroup()));
-
-                //Vote resets should only happen if there are no grouped sequences with active votes
-                if(noGroupedSequencesHaveVotes) {
-                    //Reset votes
-                    if(show.getPreferences().getResetVotes()) {
-                        show.getVotes().clear();
-                    }
-                }
-
-                //Set visibility counts
-                if(show.getPreferences().getHideSequenceCount() != 0 && StringUtils.isEmpty(actualSequence.get().getGroup())) {
-                    actualSequence.get().setVisibilityCount(show.getPreferences().getHideSequenceCount() + 1);
-                }
-
-                //Only save stats for non-grouped sequences
-                if(StringUtils.isEmpty(actualSequence.get().getGroup()) && !winningSequenceIsPSA) {
-                    show.getStats().getVotingWin().add(Stat.VotingWin.builder()
-                            .name(actualSequence.get().getName())
-                            .dateTime(LocalDateTime.now())
-                            .build());
-                }
+    private void updateIfUnchanged(ShowUpdate update) {
+        this.unitOfWork.changeIfUnchanged(update);
+    }
 
-                if(show.getPreferences().getPsaEnabled() && !show.getPreferences().getManagePsa()
-                        && CollectionUtils.isNotEmpty(show.getPsaSequences()) && StringUtils.isEmpty(actualSequence.get().getGroup()) && !winningSequenceIsPSA) {
-                    Integer voteWinsToday = show.getStats().getVotingWin().stream()
-                            .filter(stat -> stat.getDateTime().isAfter(LocalDateTime.now().withHour(0).withMinute(0).withSecond(0)))
-                            .toList()
-                            .size();
-                    boolean isPSAPlayingNow = show.getPsaSequences().stream()
-                            .anyMatch(psaSequence -> StringUtils.equalsIgnoreCase(show.getPlayingNow(), psaSequence.getName()));
-                    if(voteWinsToday % show.getPreferences().getPsaFrequency() == 0 && !isPSAPlayingNow) {
-                        Optional<PsaSequence> nextPsaSequence = show.getPsaSequences().stream()
-                                .filter(Objects::nonNull)
-                                .filter(psaSequence -> psaSequence.getLastPlayed() != null)
-                                .filter(psaSequence -> psaSequence.getOrder() != null)
-                                .min(Comparator.comparing(PsaSequence::getLastPlayed)
-                                        .thenComparing(PsaSequence::getOrder));
-                        if(nextPsaSequence.isPresent()) {
-                            Optional<Sequence> sequenceToAdd = show.getSequences().stream()
-                                    .filter(sequence -> StringUtils.equalsIgnoreCase(sequence.getName(), nextPsaSequence.get().getName()))
-                                    .findFirst();
-                            show.getPsaSequences().get(show.getPsaSequences().indexOf(nextPsaSequence.get())).setLastPlayed(LocalDateTime.now());
-                            //Final Sanity check
-                            List<String> psaSequences = show.getPsaSequences().stream().map(PsaSequence::getName).toList();
-                            boolean isPsaInVotes = show.getVotes().stream().anyMatch(vote -> (vote.getSequence() != null
-                                    && vote.getSequence().getName() != null
-                                    && psaSequences.contains(vote.getSequence().getName())));
-                            if(!isPsaInVotes) {
-                                sequenceToAdd.ifPresent(sequence -> show.getVotes().add(Vote.builder()
-                                        .sequence(sequence)
-                                        .ownerVoted(false)
-                                        .lastVoteTime(LocalDateTime.now())
-                                        .votes(2000)
-                                        .build()));
-                            }
-                        }
-                    }
-                }
+    /**
+     * Records an update that doesn't depend on what was loaded. It is written at the end of the request, or with
+     * the read-modify-write it runs in.
+     */
+    private void write(ShowUpdate update) {
+        this.unitOfWork.change(update);
+    }
 
-                this.showRepository.persistOrUpdate(show);
+    /**
+     * Runs the action once the show changes of this operation are written.
+     */
+    private void afterWrite(Runnable action) {
+        this.unitOfWork.afterFlush(action);
+    }
 
-                //Return winning sequence
-                return HighestVotedPlaylistResponse.builder()
-                        .winningPlaylist(actualSequence.get().getName())
-                        .playlistIndex(actualSequence.get().getIndex())
-                        .build();
-            }
+    /**
+     * Reloads the show of this request with the fields it was first loaded with. Returns false if it is gone.
+     */
+    private boolean reloadShow(String showToken) {
+        Optional<VersionedShow> show = this.showRepository.findVersionedByShowToken(showToken, showContext.getFields());
+        if(show.isEmpty()) {
+            return false;
         }
-        return null;
+        showContext.setShow(show.get().show());
+        showContext.setVersion(show.get().version());
+        this.sequenceIndex = null;
+        return true;
     }
 
-    public PluginResponse pluginVersion(PluginVersion request) {
-        Show show = showContext.getShow();
-        show.setPluginVersion(request.getPluginVersion());
-        show.setFppVersion(request.getFppVersion());
-        this.showRepository.persistOrUpdate(show);
-        return PluginResponse.builder().message("Success").build();
+    static WebApplicationException writeConflict() {
+        return new WebApplicationException(
+                Response.status(Response.Status.CONFLICT)
+                        .entity(PluginResponse.builder().message("Show is being changed concurrently, try again").build())
+                        .build()
+        );
     }
 
-    public RemotePreferenceResponse remotePreferences() {
-        Show show = showContext.getShow();
-        return RemotePreferenceResponse.builder()
-                .remoteSubdomain(show.getShowSubdomain())
-                .viewerControlMode(show.getPreferences().getViewerControlMode().name().toLowerCase())
-                .build();
+    /**
+     * The sequence index for the show of this request, built on first use and shared by every lookup after it.
+     * Operations that replace the sequence lists must not use it afterwards.
+     */
+    private SequenceIndex sequenceIndex(Show show) {
+        if(this.sequenceIndex == null) {
+            this.sequenceIndex = new SequenceIndex(show);
+        }
+        return this.sequenceIndex;
     }
 
     public PluginResponse purgeQueue() {
         Show show = showContext.getShow();
         show.setRequests(new ArrayList<>());
         show.setVotes(new ArrayList<>());
-        this.showRepository.persistOrUpdate(show);
+        this.write(new ShowUpdate()
+                .set("requests", show.getRequests())
+                .set("votes", show.getVotes()));
         return PluginResponse.builder().message("Success").build();
     }
 
     public PluginResponse resetAllVotes() {
         Show show = showContext.getShow();
         show.setVotes(new ArrayList<>());
-        this.showRepository.persistOrUpdate(show);
+        this.write(new ShowUpdate().set("votes", show.getVotes()));
         return PluginResponse.builder().message("Success").build();
     }
 
     public PluginResponse toggleViewerControl() {
-        Show show = showContext.getShow();
-        show.getPreferences().setViewerControlEnabled(!show.getPreferences().getViewerControlEnabled());
-        show.getPreferences().setSequencesPlayed(0);
-        this.showRepository.persistOrUpdate(show);
-        return PluginResponse.builder().viewerControlEnabled(!show.getPreferences().getViewerControlEnabled()).build();
+        return this.mutate(() -> {
+            Show show = showContext.getShow();
+            show.getPreferences().setViewerControlEnabled(!show.getPreferences().getViewerControlEnabled());
+            show.getPreferences().setSequencesPlayed(0);
+            this.updateIfUnchanged(new ShowUpdate()
+                    .set("preferences.viewerControlEnabled", show.getPreferences().getViewerControlEnabled())
+                    .set("preferences.sequencesPlayed", 0));
+            return PluginResponse.builder().viewerControlEnabled(!show.getPreferences().getViewerControlEnabled()).build();
+        });
     }
 
     public PluginResponse updateViewerControl(ViewerControlRequest request) {
@@ -552,7 +495,7 @@ public class PluginService {
             );
         }
         show.getPreferences().setViewerControlEnabled(StringUtils.equalsIgnoreCase("Y", request.getViewerControlEnabled())); //HERE
-        this.showRepository.persistOrUpdate(show);
+        this.write(new ShowUpdate().set("preferences.viewerControlEnabled", show.getPreferences().getViewerControlEnabled()));
         return PluginResponse.builder().viewerControlEnabled(StringUtils.equalsIgnoreCase("Y", request.getViewerControlEnabled())).build();
     }
 
@@ -566,13 +509,48 @@ public class PluginService {
             );
         }
         show.getPreferences().setManagePsa(StringUtils.equalsIgnoreCase("Y", request.getManagedPsaEnabled()));
-        this.showRepository.persistOrUpdate(show);
+        this.write(new ShowUpdate().set("preferences.managePsa", show.getPreferences().getManagePsa()));
         return PluginResponse.builder().managedPsaEnabled(StringUtils.equalsIgnoreCase("Y", request.getManagedPsaEnabled())).build();
     }
 
-    public void fppHeartbeat() {
-        Show show = showContext.getShow();
-        show.setLastFppHeartbeat(LocalDateTime.now());
-        this.showRepository.persistOrUpdate(show);
+    /**
+     * Runs the operations of a batch in order against the show loaded for the request, with the same results as
+     * calling their endpoints one by one. The operations are read-modify-writes nested in the batch's own, so
+     * their changes are flushed together when the batch finishes; on a conflict the whole batch runs again on a
+     * reloaded show.
+     */
+    public BatchResponse batch(BatchRequest request) {
+        if(request == null || CollectionUtils.isEmpty(request.getOperations()) || request.getOperations().size() > MAX_BATCH_OPERATIONS) {
+            throw new WebApplicationException(
+                    Response.status(Response.Status.BAD_REQUEST)
+                            .entity(PluginResponse.builder().message("A batch needs 1 to " + MAX_BATCH_OPERATIONS + " operations").build())
+                            .build()
+            );
+        }
+        return this.mutate(() -> {
+            List<Object> results = new ArrayList<>();
+            for(BatchOperation operation : request.getOperations()) {
+                results.add(this.runBatchOperation(operation));
+            }
+            return BatchResponse.builder().results(results).build();
+        });
+    }
+
+    private Object runBatchOperation(BatchOperation operation) {
+        return switch(operation.getType() == null ? "" : operation.getType()) {
+            case "updateWhatsPlaying" -> this.updateWhatsPlaying(UpdateWhatsPlayingRequest.builder().playlist(operation.getPlaylist()).build());
+            case "updateNextScheduledSequence" -> this.updateNextScheduledSequence(UpdateNextScheduledRequest.builder().sequence(operation.getSequence()).build());
+            case "nextPlaylistInQueue" -> this.nextPlaylistInQueue();
+            case "highestVotedPlaylist" -> this.highestVotedPlaylist();
+            case "fppHeartbeat" -> {
+                this.pollingService.fppHeartbeat(showContext.getShow());
+                yield null;
+            }
+            default -> throw new WebApplicationException(
+                    Response.status(Response.Status.BAD_REQUEST)
+                            .entity(PluginResponse.builder().message("Unsupported batch operation " + operation.getType()).build())
+                            .build()
+            );
+        };
     }
 }
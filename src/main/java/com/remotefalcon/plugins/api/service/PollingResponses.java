@@ -0,0 +1,124 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.remotefalcon.library.enums.ViewerControlMode;
+import com.remotefalcon.library.models.Request;
+import com.remotefalcon.library.models.Sequence;
+import com.remotefalcon.plugins.api.model.NextPlaylistResponse;
+import com.remotefalcon.plugins.api.model.PluginResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The JSON bodies of the polling endpoints, as bytes. Answers that can only take a few values (an empty queue,
+ * "Success", each viewer control mode) are serialized once at startup with the application's {@link ObjectMapper};
+ * the two that carry show data are written field by field here, in the layout Jackson gives their models, so a
+ * poll doesn't build a model or serialize it by reflection. The returned arrays may be shared and must not be
+ * changed.
+ */
+@ApplicationScoped
+public class PollingResponses {
+    private static final JsonStringEncoder ENCODER = JsonStringEncoder.getInstance();
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] NEXT_PLAYLIST = ascii("{\"nextPlaylist\":");
+    private static final byte[] PLAYLIST_INDEX = ascii(",\"playlistIndex\":");
+    private static final byte[] VIEWER_CONTROL_MODE = ascii("{\"viewerControlMode\":");
+    private static final byte[] REMOTE_SUBDOMAIN = ascii(",\"remoteSubdomain\":");
+    private static final byte[] INTERRUPT_SCHEDULE = ascii(",\"interruptSchedule\":null");
+    private static final byte[] END = ascii("}");
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    private byte[] success;
+    private byte[] queueEmpty;
+    private byte[] noNextPlaylist;
+    private final Map<ViewerControlMode, byte[]> viewerControlModes = new EnumMap<>(ViewerControlMode.class);
+    //Each mode as a JSON string, for the responses that embed it
+    private final Map<ViewerControlMode, byte[]> viewerControlModeNames = new EnumMap<>(ViewerControlMode.class);
+
+    @PostConstruct
+    void init() throws JsonProcessingException {
+        this.success = this.objectMapper.writeValueAsBytes(PluginResponse.builder().message("Success").build());
+        this.queueEmpty = this.objectMapper.writeValueAsBytes(PluginResponse.builder().message("Queue Empty").build());
+        this.noNextPlaylist = this.objectMapper.writeValueAsBytes(PluginService.nextPlaylistResponse(Optional.empty()));
+        for(ViewerControlMode mode : ViewerControlMode.values()) {
+            String name = mode.name().toLowerCase();
+            this.viewerControlModes.put(mode, this.objectMapper.writeValueAsBytes(PluginResponse.builder().viewerControlMode(name).build()));
+            this.viewerControlModeNames.put(mode, string(name));
+        }
+    }
+
+    public byte[] success() {
+        return this.success;
+    }
+
+    public byte[] queueEmpty() {
+        return this.queueEmpty;
+    }
+
+    public byte[] viewerControlMode(ViewerControlMode mode) {
+        return this.viewerControlModes.get(mode);
+    }
+
+    /**
+     * A {@link NextPlaylistResponse} for the dequeued request, or for an empty queue.
+     */
+    public byte[] nextPlaylist(Optional<Request> nextRequest) {
+        if(nextRequest.isEmpty()) {
+            return this.noNextPlaylist;
+        }
+        Sequence sequence = nextRequest.get().getSequence();
+        return concat(NEXT_PLAYLIST, string(sequence.getName()), PLAYLIST_INDEX, number(sequence.getIndex()), END);
+    }
+
+    /**
+     * A {@link com.remotefalcon.plugins.api.model.RemotePreferenceResponse}.
+     */
+    public byte[] remotePreferences(ViewerControlMode mode, String remoteSubdomain) {
+        return concat(VIEWER_CONTROL_MODE, this.viewerControlModeNames.get(mode), REMOTE_SUBDOMAIN, string(remoteSubdomain),
+                INTERRUPT_SCHEDULE, END);
+    }
+
+    private static byte[] string(String value) {
+        if(value == null) {
+            return NULL;
+        }
+        byte[] escaped = ENCODER.quoteAsUTF8(value);
+        byte[] quoted = new byte[escaped.length + 2];
+        quoted[0] = '"';
+        System.arraycopy(escaped, 0, quoted, 1, escaped.length);
+        quoted[quoted.length - 1] = '"';
+        return quoted;
+    }
+
+    private static byte[] number(Integer value) {
+        return value == null ? NULL : ascii(value.toString());
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for(byte[] part : parts) {
+            length += part.length;
+        }
+        byte[] json = new byte[length];
+        int offset = 0;
+        for(byte[] part : parts) {
+            System.arraycopy(part, 0, json, offset, part.length);
+            offset += part.length;
+        }
+        return json;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,58 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.remotefalcon.library.quarkus.entity.Show;
+import com.remotefalcon.plugins.api.model.PluginVersion;
+import com.remotefalcon.plugins.api.repository.ShowRepository;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.apache.commons.collections.CollectionUtils;
+
+import java.time.LocalDateTime;
+
+/**
+ * The endpoints FPP polls every few seconds that don't read-modify-write the show. They are stateless and take
+ * the show the filter loaded as an argument, so a poll runs on this single instance instead of the request-scoped
+ * {@link PluginService}. The show may come from the show cache and be shared with other requests, so it is only
+ * read here, never changed. Answers are the JSON bodies from {@link PollingResponses}.
+ */
+@ApplicationScoped
+public class PollingService {
+
+    @Inject
+    ShowRepository showRepository;
+
+    @Inject
+    HeartbeatBuffer heartbeatBuffer;
+
+    @Inject
+    PollingResponses pollingResponses;
+
+    public byte[] nextPlaylistInQueue(Show show) {
+        return this.pollingResponses.nextPlaylist(this.showRepository.dequeueNextRequest(show.getShowToken()));
+    }
+
+    public byte[] updatePlaylistQueue(Show show) {
+        if(CollectionUtils.isEmpty(show.getRequests())) {
+            return this.pollingResponses.queueEmpty();
+        }else {
+            return this.pollingResponses.success();
+        }
+    }
+
+    public byte[] viewerControlMode(Show show) {
+        return this.pollingResponses.viewerControlMode(show.getPreferences().getViewerControlMode());
+    }
+
+    public byte[] remotePreferences(Show show) {
+        return this.pollingResponses.remotePreferences(show.getPreferences().getViewerControlMode(), show.getShowSubdomain());
+    }
+
+    public byte[] pluginVersion(Show show, PluginVersion request) {
+        this.heartbeatBuffer.pluginVersion(show.getShowToken(), request.getPluginVersion(), request.getFppVersion());
+        return this.pollingResponses.success();
+    }
+
+    public void fppHeartbeat(Show show) {
+        this.heartbeatBuffer.heartbeat(show.getShowToken(), LocalDateTime.now());
+    }
+}
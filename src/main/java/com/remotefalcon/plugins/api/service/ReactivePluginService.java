@@ -0,0 +1,174 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.remotefalcon.library.models.Stat;
+import com.remotefalcon.library.quarkus.entity.Show;
+import com.remotefalcon.plugins.api.cache.ShowChangeEvents;
+import com.remotefalcon.plugins.api.model.HighestVotedPlaylistResponse;
+import com.remotefalcon.plugins.api.model.NextPlaylistResponse;
+import com.remotefalcon.plugins.api.repository.ReactiveShowRepository;
+import com.remotefalcon.plugins.api.repository.ReactiveVotingWinRepository;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.apache.commons.collections.CollectionUtils;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Non-blocking versions of the {@link PluginService} operations that FPP polls every few seconds. They follow the
+ * blocking service step for step, with Mongo calls chained instead of awaited. Like {@link PollingService} they
+ * are stateless and take the show the filter loaded as an argument.
+ */
+@ApplicationScoped
+public class ReactivePluginService {
+
+    @Inject
+    ReactiveShowRepository showRepository;
+
+    @Inject
+    ReactiveVotingWinRepository votingWinRepository;
+
+    @Inject
+    ShowChangeEvents showChangeEvents;
+
+    @Inject
+    PollingResponses pollingResponses;
+
+    @ConfigProperty(name = "long-poll.timeout")
+    Duration longPollTimeout;
+
+    @ConfigProperty(name = "show.write.max-attempts")
+    int maxWriteAttempts;
+
+    /**
+     * The JSON body of the dequeue, see {@link PollingService#nextPlaylistInQueue}.
+     */
+    public Uni<byte[]> nextPlaylistInQueue(Show show) {
+        return this.showRepository.dequeueNextRequest(show.getShowToken())
+                .map(this.pollingResponses::nextPlaylist);
+    }
+
+    /**
+     * Like {@link #nextPlaylistInQueue}, but with an empty queue waits up to {@code long-poll.timeout} for a
+     * request to arrive before answering. Nothing is held while waiting, so both stacks serve long-polls from here.
+     */
+    public Uni<NextPlaylistResponse> awaitNextPlaylistInQueue(Show show) {
+        return this.awaitNextPlaylistInQueue(show.getShowToken(), this.deadline(), resumeOn(Vertx.currentContext()));
+    }
+
+    /**
+     * Resolves the vote on the show loaded at the given version with {@link PluginService#HIGHEST_VOTED_FIELDS}.
+     */
+    public Uni<HighestVotedPlaylistResponse> highestVotedPlaylist(Show show, Long version) {
+        return this.highestVotedPlaylist(show, version, PluginService.HIGHEST_VOTED_FIELDS, 1);
+    }
+
+    /**
+     * Like {@link #highestVotedPlaylist}, but without votes waits up to {@code long-poll.timeout} for one to arrive
+     * before answering. The show is reloaded every time its votes change, so the endpoint doesn't need the filter to
+     * load it. Nothing is held while waiting.
+     */
+    public Uni<HighestVotedPlaylistResponse> awaitHighestVotedPlaylist(Show show) {
+        return this.awaitHighestVotedPlaylist(show.getShowToken(), this.deadline(), resumeOn(Vertx.currentContext()));
+    }
+
+    private Uni<NextPlaylistResponse> awaitNextPlaylistInQueue(String showToken, long deadline, Executor resumeOn) {
+        CompletableFuture<Void> requestsChanged = this.showChangeEvents.next(showToken, "requests");
+        return this.showRepository.dequeueNextRequest(showToken)
+                .map(PluginService::nextPlaylistResponse)
+                .chain(response -> response.getNextPlaylist() != null
+                        ? Uni.createFrom().item(response)
+                        : this.awaitChange(requestsChanged, deadline, resumeOn).chain(changed -> changed
+                                ? this.awaitNextPlaylistInQueue(showToken, deadline, resumeOn)
+                                : Uni.createFrom().item(response)));
+    }
+
+    private Uni<HighestVotedPlaylistResponse> awaitHighestVotedPlaylist(String showToken, long deadline, Executor resumeOn) {
+        CompletableFuture<Void> votesChanged = this.showChangeEvents.next(showToken, "votes");
+        return this.showRepository.findVersionedByShowToken(showToken, PluginService.HIGHEST_VOTED_FIELDS)
+                .chain(show -> show.isPresent()
+                        ? this.highestVotedPlaylist(show.get().show(), show.get().version(), PluginService.HIGHEST_VOTED_FIELDS, 1)
+                        : Uni.createFrom().item(PluginService.noVotesResponse()))
+                .chain(response -> response == null || response.getWinningPlaylist() != null
+                        ? Uni.createFrom().item(response)
+                        : this.awaitChange(votesChanged, deadline, resumeOn).chain(changed -> changed
+                                ? this.awaitHighestVotedPlaylist(showToken, deadline, resumeOn)
+                                : Uni.createFrom().item(response)));
+    }
+
+    /**
+     * Resolves the vote like {@link PluginService#highestVotedPlaylist()}. The write is conditional on the
+     * version the show was loaded at; if the show changed in the meantime it is reloaded with the same fields and
+     * resolved again, up to {@code show.write.max-attempts} times. There is no show lock on this stack, since it
+     * would block the event loop.
+     */
+    private Uni<HighestVotedPlaylistResponse> highestVotedPlaylist(Show show, Long version, String[] fields, int attempt) {
+        if(CollectionUtils.isEmpty(show.getVotes())) {
+            return Uni.createFrom().item(PluginService.noVotesResponse());
+        }
+        VoteResolution resolution = new VoteResolution(show, new SequenceIndex(show));
+        if(!resolution.resolve()) {
+            return Uni.createFrom().nullItem();
+        }
+        Stat.VotingWin votingWin = resolution.votingWin();
+        Uni<Void> psaApplied = !resolution.psaDue()
+                ? Uni.createFrom().voidItem()
+                : this.votingWinRepository.count(show.getShowToken(), votingWin.getDateTime().toLocalDate())
+                        .invoke(voteWinsToday -> resolution.applyPsa(voteWinsToday + 1))
+                        .replaceWithVoid();
+        return psaApplied
+                .chain(() -> this.showRepository.update(show.getShowToken(), version, resolution.update()))
+                .chain(updated -> {
+                    if(updated) {
+                        Uni<Void> votingWinRecorded = votingWin == null
+                                ? Uni.createFrom().voidItem()
+                                : this.votingWinRepository.record(show.getShowToken(), votingWin);
+                        return votingWinRecorded.map(ignored -> resolution.response());
+                    }
+                    if(attempt >= this.maxWriteAttempts) {
+                        return Uni.createFrom().failure(PluginService.writeConflict());
+                    }
+                    return this.showRepository.findVersionedByShowToken(show.getShowToken(), fields)
+                            .chain(reloaded -> reloaded.isPresent()
+                                    ? this.highestVotedPlaylist(reloaded.get().show(), reloaded.get().version(), fields, attempt + 1)
+                                    : Uni.createFrom().item(PluginService.noVotesResponse()));
+                });
+    }
+
+    /**
+     * Emits true once the change happens, or false at the deadline, or straight away when change events aren't
+     * available. The wait resumes on the request's Vert.x context rather than the change stream thread; on the
+     * blocking stack the request runs on a worker or virtual thread, whose context is the request's too. It
+     * waits on a copy of the shared future, so timing out doesn't cancel it for other waiters.
+     */
+    private Uni<Boolean> awaitChange(CompletableFuture<Void> change, long deadline, Executor resumeOn) {
+        long remaining = deadline - System.nanoTime();
+        if(remaining <= 0 || !this.showChangeEvents.isActive()) {
+            return Uni.createFrom().item(false);
+        }
+        return Uni.createFrom().completionStage(change.copy())
+                .map(ignored -> true)
+                .ifNoItem().after(Duration.ofNanos(remaining)).recoverWithItem(false)
+                .emitOn(resumeOn);
+    }
+
+    /**
+     * Runs a resumed wait on the request's Vert.x context, or straight away on the completing thread when the
+     * caller isn't on one.
+     */
+    private static Executor resumeOn(Context context) {
+        if(context == null) {
+            return Runnable::run;
+        }
+        return command -> context.runOnContext(ignored -> command.run());
+    }
+
+    private long deadline() {
+        return System.nanoTime() + this.longPollTimeout.toNanos();
+    }
+}
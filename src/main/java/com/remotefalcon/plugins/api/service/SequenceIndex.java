@@ -0,0 +1,146 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.remotefalcon.library.models.PsaSequence;
+import com.remotefalcon.library.models.Sequence;
+import com.remotefalcon.library.models.SequenceGroup;
+import com.remotefalcon.library.quarkus.entity.Show;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Case-insensitive lookups over a loaded show's sequences, sequence groups and PSA sequences, built once per
+ * request in one pass so the service does not re-scan those lists with {@code equalsIgnoreCase} for every check.
+ * When several entries share a name, the first one wins, matching the {@code findFirst} scans it replaces.
+ * <p>
+ * Positions point into the show's lists, so the index is only valid while those lists are mutated in place.
+ * <p>
+ * It also tracks the positions of hidden entries ({@code visibilityCount > 0}), so counting them down after a play
+ * only touches those few rather than the whole catalog. Code that hides an entry reports it through
+ * {@link #sequenceHidden} or {@link #sequenceGroupHidden}.
+ */
+final class SequenceIndex {
+    private final List<Sequence> sequences;
+    private final List<SequenceGroup> sequenceGroups;
+    private final Map<String, Integer> sequencePositions = new HashMap<>();
+    private final Map<String, Integer> sequenceGroupPositions = new HashMap<>();
+    private final Map<String, List<Sequence>> sequencesByGroup = new HashMap<>();
+    private final Set<String> psaNames = new HashSet<>();
+    private final BitSet hiddenSequences = new BitSet();
+    private final BitSet hiddenSequenceGroups = new BitSet();
+
+    SequenceIndex(Show show) {
+        this.sequences = show.getSequences() != null ? show.getSequences() : Collections.emptyList();
+        this.sequenceGroups = show.getSequenceGroups() != null ? show.getSequenceGroups() : Collections.emptyList();
+        for(int i = 0; i < this.sequences.size(); i++) {
+            Sequence sequence = this.sequences.get(i);
+            this.sequencePositions.putIfAbsent(key(sequence.getName()), i);
+            if(isHidden(sequence.getVisibilityCount())) {
+                this.hiddenSequences.set(i);
+            }
+            if(sequence.getGroup() != null && !sequence.getGroup().isEmpty()) {
+                this.sequencesByGroup.computeIfAbsent(key(sequence.getGroup()), group -> new ArrayList<>()).add(sequence);
+            }
+        }
+        for(int i = 0; i < this.sequenceGroups.size(); i++) {
+            this.sequenceGroupPositions.putIfAbsent(key(this.sequenceGroups.get(i).getName()), i);
+            if(isHidden(this.sequenceGroups.get(i).getVisibilityCount())) {
+                this.hiddenSequenceGroups.set(i);
+            }
+        }
+        if(show.getPsaSequences() != null) {
+            for(PsaSequence psaSequence : show.getPsaSequences()) {
+                if(psaSequence != null && psaSequence.getName() != null) {
+                    this.psaNames.add(key(psaSequence.getName()));
+                }
+            }
+        }
+    }
+
+    Sequence sequence(String name) {
+        int position = this.sequencePosition(name);
+        return position < 0 ? null : this.sequences.get(position);
+    }
+
+    int sequencePosition(String name) {
+        return name == null ? -1 : this.sequencePositions.getOrDefault(key(name), -1);
+    }
+
+    SequenceGroup sequenceGroup(String name) {
+        int position = this.sequenceGroupPosition(name);
+        return position < 0 ? null : this.sequenceGroups.get(position);
+    }
+
+    int sequenceGroupPosition(String name) {
+        return name == null ? -1 : this.sequenceGroupPositions.getOrDefault(key(name), -1);
+    }
+
+    List<Sequence> sequencesInGroup(String groupName) {
+        if(groupName == null) {
+            return Collections.emptyList();
+        }
+        return this.sequencesByGroup.getOrDefault(key(groupName), Collections.emptyList());
+    }
+
+    boolean isPsa(String name) {
+        return name != null && this.psaNames.contains(key(name));
+    }
+
+    void sequenceHidden(int position) {
+        this.hiddenSequences.set(position);
+    }
+
+    void sequenceGroupHidden(int position) {
+        this.hiddenSequenceGroups.set(position);
+    }
+
+    /**
+     * Counts every hidden sequence down by one play. Sequences that become visible drop out of the hidden set.
+     * Returns false when none was hidden.
+     */
+    boolean countDownHiddenSequences() {
+        if(this.hiddenSequences.isEmpty()) {
+            return false;
+        }
+        for(int i = this.hiddenSequences.nextSetBit(0); i >= 0; i = this.hiddenSequences.nextSetBit(i + 1)) {
+            Sequence sequence = this.sequences.get(i);
+            sequence.setVisibilityCount(sequence.getVisibilityCount() - 1);
+            if(sequence.getVisibilityCount() == 0) {
+                this.hiddenSequences.clear(i);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Like {@link #countDownHiddenSequences()}, for sequence groups.
+     */
+    boolean countDownHiddenSequenceGroups() {
+        if(this.hiddenSequenceGroups.isEmpty()) {
+            return false;
+        }
+        for(int i = this.hiddenSequenceGroups.nextSetBit(0); i >= 0; i = this.hiddenSequenceGroups.nextSetBit(i + 1)) {
+            SequenceGroup sequenceGroup = this.sequenceGroups.get(i);
+            sequenceGroup.setVisibilityCount(sequenceGroup.getVisibilityCount() - 1);
+            if(sequenceGroup.getVisibilityCount() == 0) {
+                this.hiddenSequenceGroups.clear(i);
+            }
+        }
+        return true;
+    }
+
+    private static boolean isHidden(Integer visibilityCount) {
+        return visibilityCount != null && visibilityCount > 0;
+    }
+
+    private static String key(String name) {
+        return name == null ? null : name.toLowerCase(Locale.ROOT);
+    }
+}
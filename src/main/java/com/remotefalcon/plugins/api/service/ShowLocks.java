@@ -0,0 +1,38 @@
+package com.remotefalcon.plugins.api.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Striped per-show locks that serialize read-modify-write operations on the same show within this instance,
+ * without a global lock. Shows that hash to the same stripe share a lock, which only costs them some contention.
+ * Writes from other instances and the viewer side are caught by the show version instead.
+ */
+@ApplicationScoped
+public class ShowLocks {
+    @ConfigProperty(name = "show.write.lock-stripes")
+    int stripes;
+
+    private Lock[] locks;
+
+    @PostConstruct
+    void init() {
+        this.locks = new Lock[this.stripes];
+        for(int i = 0; i < this.stripes; i++) {
+            this.locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Locks the show's stripe and returns the lock, for the caller to unlock.
+     */
+    public Lock lock(String showToken) {
+        Lock lock = this.locks[Math.floorMod(showToken.hashCode(), this.locks.length)];
+        lock.lock();
+        return lock;
+    }
+}
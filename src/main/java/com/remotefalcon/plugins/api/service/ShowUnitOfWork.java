@@ -0,0 +1,129 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.remotefalcon.library.quarkus.entity.Show;
+import com.remotefalcon.plugins.api.context.RequestAttributes;
+import com.remotefalcon.plugins.api.context.ShowContext;
+import com.remotefalcon.plugins.api.diagnostics.ShowProfiler;
+import com.remotefalcon.plugins.api.repository.ShowRepository;
+import com.remotefalcon.plugins.api.repository.ShowUpdate;
+import jakarta.enterprise.context.RequestScoped;
+import jakarta.inject.Inject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The show changes of one request. Operations record their changes here instead of writing them, and they are
+ * merged into a single update (see {@link ShowUpdate#merge}) that {@link #flush()} writes atomically: either all
+ * of it applies or, on a version conflict, none of it, so the operations can be redone safely. Read-modify-write
+ * operations flush when they finish so they can retry on a conflict; anything else is flushed by
+ * {@link com.remotefalcon.plugins.api.filters.ShowUnitOfWorkFilter} once the endpoint has answered, which finds
+ * the unit of work through the {@link RequestAttributes request attribute} it sets on its first change.
+ */
+@RequestScoped
+public class ShowUnitOfWork {
+
+    @Inject
+    ShowContext showContext;
+
+    @Inject
+    ShowRepository showRepository;
+
+    @Inject
+    ShowProfiler showProfiler;
+
+    private ShowUpdate changes = new ShowUpdate();
+    private final List<Runnable> afterFlush = new ArrayList<>();
+    //Whether any change was computed from the loaded show, making the whole flush conditional on its version
+    private boolean conditional;
+    private boolean registered;
+
+    /**
+     * Records a change that doesn't depend on what was loaded.
+     */
+    public void change(ShowUpdate update) {
+        if(!update.isEmpty()) {
+            Show show = this.showContext.getShow();
+            this.changes.merge(update, field -> wholeField(show, field));
+            this.register();
+        }
+    }
+
+    /**
+     * Records a change computed from the loaded show. The flush then only applies if the show is still at the
+     * version it was loaded at.
+     */
+    public void changeIfUnchanged(ShowUpdate update) {
+        this.change(update);
+        this.conditional = true;
+    }
+
+    /**
+     * The loaded value of a field two changes couldn't be combined on. Operations change the loaded show along
+     * with their updates, so it carries both changes.
+     */
+    static Object wholeField(Show show, String field) {
+        Object value = switch(field) {
+            case "requests" -> show.getRequests();
+            case "votes" -> show.getVotes();
+            case "sequences" -> show.getSequences();
+            case "sequenceGroups" -> show.getSequenceGroups();
+            case "psaSequences" -> show.getPsaSequences();
+            case "preferences" -> show.getPreferences();
+            default -> null;
+        };
+        if(value == null) {
+            throw new IllegalStateException("Can't combine the changes to " + field + " into one write");
+        }
+        return value;
+    }
+
+    /**
+     * Runs the action once the recorded changes are written, or straight after the flush when there were none.
+     */
+    public void afterFlush(Runnable action) {
+        this.afterFlush.add(action);
+        this.register();
+    }
+
+    private void register() {
+        if(!this.registered) {
+            RequestAttributes.set(RequestAttributes.UNIT_OF_WORK, this);
+            this.registered = true;
+        }
+    }
+
+    public boolean isDirty() {
+        return !this.changes.isEmpty() || !this.afterFlush.isEmpty();
+    }
+
+    /**
+     * Writes the recorded changes. Returns false when they were conditional and the show moved on since it was
+     * loaded, in which case nothing was written, the operation has to be redone from a reloaded show and the
+     * actions waiting on the flush are dropped. Either way the unit of work is empty afterwards.
+     */
+    public boolean flush() {
+        ShowUpdate update = this.changes;
+        List<Runnable> actions = List.copyOf(this.afterFlush);
+        boolean conditional = this.conditional;
+        this.discard();
+
+        String showToken = this.showContext.getShow().getShowToken();
+        this.showProfiler.profileWrite(List.of(update), () -> this.showRepository.mongoCollection().getCodecRegistry());
+        if(conditional) {
+            if(!this.showRepository.update(showToken, this.showContext.getVersion(), update)) {
+                return false;
+            }
+        }else {
+            this.showRepository.update(showToken, update);
+        }
+        actions.forEach(Runnable::run);
+        return true;
+    }
+
+    public void discard() {
+        this.changes = new ShowUpdate();
+        this.afterFlush.clear();
+        this.conditional = false;
+    }
+}
@@ -0,0 +1,70 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.remotefalcon.plugins.api.model.PluginResponse;
+import com.remotefalcon.plugins.api.model.SyncPlaylistDetails;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Reads a {@code SyncPlaylistRequest} body one playlist at a time with Jackson's streaming parser, so the request
+ * is never bound as a whole. Only one {@link SyncPlaylistDetails} is materialized at a time, and reading stops
+ * as soon as the body has more than the allowed number of playlists.
+ */
+final class SyncPlaylistReader {
+
+    private SyncPlaylistReader() {
+    }
+
+    static void read(InputStream body, ObjectMapper objectMapper, int limit, Consumer<SyncPlaylistDetails> playlists) {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            if(parser.nextToken() != JsonToken.START_OBJECT) {
+                throw badRequest("Expected a JSON object");
+            }
+            boolean playlistsRead = false;
+            while(parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if("playlists".equals(field) && value == JsonToken.START_ARRAY) {
+                    readPlaylists(parser, limit, playlists);
+                    playlistsRead = true;
+                }else {
+                    parser.skipChildren();
+                }
+            }
+            //A missing list must not be taken for an empty one, which would deactivate every sequence
+            if(!playlistsRead) {
+                throw badRequest("Expected a playlists array");
+            }
+        }catch (IOException e) {
+            throw badRequest("Malformed playlist sync");
+        }
+    }
+
+    private static void readPlaylists(JsonParser parser, int limit, Consumer<SyncPlaylistDetails> playlists) throws IOException {
+        int count = 0;
+        while(parser.nextToken() != JsonToken.END_ARRAY) {
+            if(++count > limit) {
+                throw badRequest("Cannot sync more than " + limit + " sequences");
+            }
+            SyncPlaylistDetails playlist = parser.readValueAs(SyncPlaylistDetails.class);
+            if(playlist != null) {
+                playlists.accept(playlist);
+            }
+        }
+    }
+
+    private static WebApplicationException badRequest(String message) {
+        return new WebApplicationException(
+                Response.status(Response.Status.BAD_REQUEST)
+                        .entity(PluginResponse.builder().message(message).build())
+                        .build()
+        );
+    }
+}
@@ -0,0 +1,82 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.remotefalcon.library.models.Vote;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Ranks a show's votes (most votes first, then earliest vote) and keeps running counts of the votes the winner
+ * logic asks about, so those checks are O(1) instead of another pass over the votes.
+ * <p>
+ * Votes are reloaded with the show on every poll, so the winner is found with a single linear pass rather than
+ * by building a heap, which would cost more than the one selection it serves. The counts are then kept up to
+ * date as votes are removed and added while the winner is processed.
+ */
+final class VoteLeaderboard {
+    static final Comparator<Vote> RANKING = Comparator.comparing(Vote::getVotes)
+            .thenComparing(Comparator.comparing(Vote::getLastVoteTime).reversed());
+
+    private final List<Vote> votes;
+    private final SequenceIndex sequenceIndex;
+    private int winnerPosition = -1;
+    private int groupedVotes;
+    private int psaVotes;
+
+    VoteLeaderboard(List<Vote> votes, SequenceIndex sequenceIndex) {
+        this.votes = votes;
+        this.sequenceIndex = sequenceIndex;
+        for(int i = 0; i < votes.size(); i++) {
+            Vote vote = votes.get(i);
+            //Ties keep the earlier vote, like Stream.max
+            if(this.winnerPosition < 0 || RANKING.compare(vote, votes.get(this.winnerPosition)) > 0) {
+                this.winnerPosition = i;
+            }
+            this.count(vote, 1);
+        }
+    }
+
+    Vote winner() {
+        return this.winnerPosition < 0 ? null : this.votes.get(this.winnerPosition);
+    }
+
+    Vote removeWinner() {
+        Vote winner = this.votes.remove(this.winnerPosition);
+        this.count(winner, -1);
+        this.winnerPosition = -1;
+        return winner;
+    }
+
+    void add(Vote vote) {
+        this.votes.add(vote);
+        this.count(vote, 1);
+    }
+
+    void clear() {
+        this.votes.clear();
+        this.winnerPosition = -1;
+        this.groupedVotes = 0;
+        this.psaVotes = 0;
+    }
+
+    /**
+     * Whether any remaining vote is for a grouped sequence (or has no sequence at all).
+     */
+    boolean hasGroupedVotes() {
+        return this.groupedVotes > 0;
+    }
+
+    boolean hasPsaVotes() {
+        return this.psaVotes > 0;
+    }
+
+    private void count(Vote vote, int delta) {
+        if(vote.getSequence() == null || StringUtils.isNotEmpty(vote.getSequence().getGroup())) {
+            this.groupedVotes += delta;
+        }
+        if(vote.getSequence() != null && this.sequenceIndex.isPsa(vote.getSequence().getName())) {
+            this.psaVotes += delta;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.remotefalcon.library.models.PsaSequence;
+import com.remotefalcon.library.models.Sequence;
+import com.remotefalcon.library.models.SequenceGroup;
+import com.remotefalcon.library.models.Stat;
+import com.remotefalcon.library.models.Vote;
+import com.remotefalcon.library.quarkus.entity.Show;
+import com.remotefalcon.plugins.api.model.HighestVotedPlaylistResponse;
+import com.remotefalcon.plugins.api.repository.ShowUpdate;
+import org.apache.commons.lang3.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Resolves the winning vote of a loaded show without doing any I/O, so the blocking and reactive services share
+ * the same rules. The caller drives it in order:
+ * <ol>
+ *     <li>{@link #resolve()} picks the winner and applies the visibility and vote changes to the show,</li>
+ *     <li>if {@link #psaDue()}, passes the number of wins today including {@link #votingWin()} to
+ *     {@link #applyPsa(int)},</li>
+ *     <li>writes {@link #update()}, then records the win and returns {@link #response()}.</li>
+ * </ol>
+ */
+final class VoteResolution {
+    private final Show show;
+    private final SequenceIndex sequenceIndex;
+    private final VoteLeaderboard leaderboard;
+    private final ShowUpdate update = new ShowUpdate();
+    private Sequence winningSequence;
+    private Stat.VotingWin votingWin;
+    private boolean psaDue;
+
+    VoteResolution(Show show, SequenceIndex sequenceIndex) {
+        this.show = show;
+        this.sequenceIndex = sequenceIndex;
+        this.leaderboard = new VoteLeaderboard(show.getVotes(), sequenceIndex);
+    }
+
+    /**
+     * Returns false when the winning vote no longer matches a sequence or group of the show. Nothing should be
+     * written in that case.
+     */
+    boolean resolve() {
+        //Get the sequence with the most votes. If there is a tie, get the sequence with the earliest vote time
+        Vote winningVote = this.leaderboard.removeWinner();
+        if(winningVote.getSequenceGroup() != null) {
+            return this.resolveGroup(winningVote.getSequenceGroup());
+        }
+        return this.resolveSequence(winningVote.getSequence());
+    }
+
+    /**
+     * The win to record for stats, or null when the winner doesn't count (PSAs, and sequences of a group, whose win
+     * is recorded under the group's name).
+     */
+    Stat.VotingWin votingWin() {
+        return this.votingWin;
+    }
+
+    /**
+     * Whether the win can queue a PSA, so the caller only reads today's win count when it is needed.
+     */
+    boolean psaDue() {
+        return this.psaDue;
+    }
+
+    /**
+     * Queues the next PSA when the show plays one every {@code psaFrequency} vote wins and today's wins land on it.
+     */
+    void applyPsa(int voteWinsToday) {
+        if(!this.psaDue || voteWinsToday % this.show.getPreferences().getPsaFrequency() != 0
+                || this.sequenceIndex.isPsa(this.show.getPlayingNow())) {
+            return;
+        }
+        Optional<PsaSequence> nextPsaSequence = this.show.getPsaSequences().stream()
+                .filter(Objects::nonNull)
+                .filter(psaSequence -> psaSequence.getLastPlayed() != null)
+                .filter(psaSequence -> psaSequence.getOrder() != null)
+                .min(Comparator.comparing(PsaSequence::getLastPlayed)
+                        .thenComparing(PsaSequence::getOrder));
+        if(nextPsaSequence.isPresent()) {
+            Sequence sequenceToAdd = this.sequenceIndex.sequence(nextPsaSequence.get().getName());
+            PluginService.setPSALastPlayed(this.show, nextPsaSequence.get(), this.update);
+            //Final Sanity check
+            if(!this.leaderboard.hasPsaVotes() && sequenceToAdd != null) {
+                this.leaderboard.add(Vote.builder()
+                        .sequence(sequenceToAdd)
+                        .ownerVoted(false)
+                        .lastVoteTime(LocalDateTime.now())
+                        .votes(2000)
+                        .build());
+            }
+        }
+    }
+
+    ShowUpdate update() {
+        return this.update.set("votes", this.show.getVotes());
+    }
+
+    HighestVotedPlaylistResponse response() {
+        return HighestVotedPlaylistResponse.builder()
+                .winningPlaylist(this.winningSequence.getName())
+                .playlistIndex(this.winningSequence.getIndex())
+                .build();
+    }
+
+    private boolean resolveGroup(SequenceGroup winningSequenceGroup) {
+        SequenceGroup actualSequenceGroup = this.sequenceIndex.sequenceGroup(winningSequenceGroup.getName());
+        if(actualSequenceGroup == null) {
+            return false;
+        }
+        List<Sequence> sequencesInGroup = new ArrayList<>(this.sequenceIndex.sequencesInGroup(actualSequenceGroup.getName()));
+        if(sequencesInGroup.isEmpty()) {
+            return false;
+        }
+
+        //Set visibility counts
+        if(this.show.getPreferences().getHideSequenceCount() != 0) {
+            int position = this.sequenceIndex.sequenceGroupPosition(actualSequenceGroup.getName());
+            actualSequenceGroup.setVisibilityCount(this.show.getPreferences().getHideSequenceCount() + 1);
+            this.sequenceIndex.sequenceGroupHidden(position);
+            this.update.set("sequenceGroups." + position + ".visibilityCount", actualSequenceGroup.getVisibilityCount());
+        }
+
+        //The first sequence of the group plays now, the rest are queued as votes behind it
+        int voteCount = 2098;
+        Sequence firstSequence = sequencesInGroup.removeFirst();
+        for(Sequence groupedSequence : sequencesInGroup) {
+            this.leaderboard.add(Vote.builder()
+                    .votes(voteCount)
+                    .lastVoteTime(LocalDateTime.now())
+                    .ownerVoted(false)
+                    .sequence(groupedSequence)
+                    .build());
+            voteCount--;
+        }
+        if(!this.resolveSequence(firstSequence)) {
+            return false;
+        }
+        this.votingWin = votingWin(actualSequenceGroup.getName());
+        return true;
+    }
+
+    private boolean resolveSequence(Sequence winningSequence) {
+        if(winningSequence == null) {
+            return false;
+        }
+        boolean winningSequenceIsPSA = this.sequenceIndex.isPsa(winningSequence.getName());
+        Sequence actualSequence = this.sequenceIndex.sequence(winningSequence.getName());
+        if(actualSequence == null) {
+            return false;
+        }
+        this.winningSequence = actualSequence;
+
+        //Vote resets should only happen if there are no grouped sequences with active votes
+        if(!this.leaderboard.hasGroupedVotes() && this.show.getPreferences().getResetVotes()) {
+            this.leaderboard.clear();
+        }
+
+        boolean grouped = StringUtils.isNotEmpty(actualSequence.getGroup());
+
+        //Set visibility counts
+        if(this.show.getPreferences().getHideSequenceCount() != 0 && !grouped) {
+            int position = this.sequenceIndex.sequencePosition(actualSequence.getName());
+            actualSequence.setVisibilityCount(this.show.getPreferences().getHideSequenceCount() + 1);
+            this.sequenceIndex.sequenceHidden(position);
+            this.update.set("sequences." + position + ".visibilityCount", actualSequence.getVisibilityCount());
+        }
+
+        //Only save stats for non-grouped sequences
+        if(!grouped && !winningSequenceIsPSA) {
+            this.votingWin = votingWin(actualSequence.getName());
+            this.psaDue = this.show.getPreferences().getPsaEnabled() && !this.show.getPreferences().getManagePsa()
+                    && this.show.getPsaSequences() != null && !this.show.getPsaSequences().isEmpty();
+        }
+        return true;
+    }
+
+    private static Stat.VotingWin votingWin(String name) {
+        return Stat.VotingWin.builder()
+                .name(name)
+                .dateTime(LocalDateTime.now())
+                .build();
+    }
+}
@@ -0,0 +1,200 @@
+package com.remotefalcon.plugins.api.repository;
+
+import com.mongodb.client.model.Filters;
+import com.remotefalcon.library.models.Preference;
+import com.remotefalcon.library.models.Request;
+import com.remotefalcon.library.models.Sequence;
+import com.remotefalcon.library.models.SequenceGroup;
+import com.remotefalcon.library.quarkus.entity.Show;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The dequeue pipeline against a real Mongo, from dev services.
+ */
+@QuarkusTest
+class ShowRepositoryTest {
+    private static final String SHOW_TOKEN = "dequeue-test";
+
+    @Inject
+    ShowRepository showRepository;
+
+    @BeforeEach
+    void clear() {
+        this.showRepository.deleteAll();
+    }
+
+    @Test
+    void dequeuesTheFirstRequestWithTheLowestPosition() {
+        this.showRepository.persist(show(0, null,
+                request("Sequence 1", 5), request("Sequence 2", 2), request("Sequence 3", 2), request("Sequence 4", 7)));
+
+        Optional<Request> next = this.showRepository.dequeueNextRequest(SHOW_TOKEN);
+
+        assertEquals("Sequence 2", next.orElseThrow().getSequence().getName());
+        assertEquals(List.of("Sequence 1", "Sequence 3", "Sequence 4"), this.reload().getRequests().stream()
+                .map(request -> request.getSequence().getName())
+                .toList());
+    }
+
+    @Test
+    void dequeuesEveryRequestOnceInPositionOrder() {
+        this.showRepository.persist(show(0, null, request("Sequence 3", 3), request("Sequence 1", 1), request("Sequence 2", 2)));
+
+        List<String> dequeued = new ArrayList<>();
+        for(Optional<Request> next = this.showRepository.dequeueNextRequest(SHOW_TOKEN); next.isPresent();
+            next = this.showRepository.dequeueNextRequest(SHOW_TOKEN)) {
+            dequeued.add(next.get().getSequence().getName());
+        }
+
+        assertEquals(List.of("Sequence 1", "Sequence 2", "Sequence 3"), dequeued);
+        assertTrue(this.reload().getRequests().isEmpty());
+    }
+
+    @Test
+    void hidesTheDequeuedSequence() {
+        this.showRepository.persist(show(3, null, request("Sequence 2", 1)));
+
+        this.showRepository.dequeueNextRequest(SHOW_TOKEN);
+
+        Show show = this.reload();
+        assertEquals(List.of(0, 4, 0), show.getSequences().stream().map(Sequence::getVisibilityCount).toList());
+        assertEquals(List.of(0), show.getSequenceGroups().stream().map(SequenceGroup::getVisibilityCount).toList());
+    }
+
+    @Test
+    void hidesTheGroupOfAGroupedSequence() {
+        this.showRepository.persist(show(3, "Sequence 3", request("Sequence 3", "Group", 1)));
+
+        this.showRepository.dequeueNextRequest(SHOW_TOKEN);
+
+        Show show = this.reload();
+        assertEquals(List.of(0, 0, 0), show.getSequences().stream().map(Sequence::getVisibilityCount).toList());
+        assertEquals(List.of(4), show.getSequenceGroups().stream().map(SequenceGroup::getVisibilityCount).toList());
+    }
+
+    @Test
+    void hidesOnlyTheFirstSequenceMatchingIgnoringCase() {
+        Show show = show(3, null, request("SEQUENCE 2", 1));
+        show.getSequences().add(sequence("sequence 2", null));
+        this.showRepository.persist(show);
+
+        this.showRepository.dequeueNextRequest(SHOW_TOKEN);
+
+        assertEquals(List.of(0, 4, 0, 0), this.reload().getSequences().stream().map(Sequence::getVisibilityCount).toList());
+    }
+
+    @Test
+    void leavesMissingSequenceGroupsMissing() {
+        Show show = show(3, "Sequence 3", request("Sequence 3", "Group", 1), request("Sequence 2", 2));
+        show.setSequenceGroups(null);
+        this.showRepository.persist(show);
+
+        this.showRepository.dequeueNextRequest(SHOW_TOKEN);
+        this.showRepository.dequeueNextRequest(SHOW_TOKEN);
+
+        Document stored = this.showRepository.mongoCollection()
+                .withDocumentClass(Document.class)
+                .find(Filters.eq("showToken", SHOW_TOKEN))
+                .first();
+        assertFalse(stored.containsKey("sequenceGroups"));
+        assertEquals(List.of(0, 4, 0), this.reload().getSequences().stream().map(Sequence::getVisibilityCount).toList());
+    }
+
+    @Test
+    void leavesVisibilityAloneWhenTheShowDoesNotHideSequences() {
+        this.showRepository.persist(show(0, "Sequence 3", request("Sequence 2", 1), request("Sequence 3", "Group", 2)));
+
+        this.showRepository.dequeueNextRequest(SHOW_TOKEN);
+        this.showRepository.dequeueNextRequest(SHOW_TOKEN);
+
+        Show show = this.reload();
+        assertEquals(List.of(0, 0, 0), show.getSequences().stream().map(Sequence::getVisibilityCount).toList());
+        assertEquals(List.of(0), show.getSequenceGroups().stream().map(SequenceGroup::getVisibilityCount).toList());
+    }
+
+    @Test
+    void emptyQueueWritesNothing() {
+        this.showRepository.persist(show(3, null));
+        //Stamps a version
+        this.showRepository.set(SHOW_TOKEN, "playingNow", "Sequence 1");
+        Long version = this.version();
+
+        assertTrue(this.showRepository.dequeueNextRequest(SHOW_TOKEN).isEmpty());
+
+        assertEquals(version, this.version());
+        assertEquals(List.of(0, 0, 0), this.reload().getSequences().stream().map(Sequence::getVisibilityCount).toList());
+    }
+
+    @Test
+    void dequeueChangesTheShowVersion() {
+        this.showRepository.persist(show(0, null, request("Sequence 1", 1)));
+        Long version = this.version();
+
+        this.showRepository.dequeueNextRequest(SHOW_TOKEN);
+
+        assertNotEquals(version, this.version());
+    }
+
+    private Show reload() {
+        return this.showRepository.findByShowToken(SHOW_TOKEN).orElseThrow();
+    }
+
+    private Long version() {
+        return this.showRepository.findVersionedByShowToken(SHOW_TOKEN, new String[]{"requests"}).orElseThrow().version();
+    }
+
+    /**
+     * A show with three sequences, the named one in the only group, that hides played sequences for
+     * {@code hideSequenceCount} plays.
+     */
+    private static Show show(int hideSequenceCount, String groupedSequence, Request... requests) {
+        List<Sequence> sequences = new ArrayList<>();
+        for(int i = 1; i <= 3; i++) {
+            String name = "Sequence " + i;
+            sequences.add(sequence(name, name.equals(groupedSequence) ? "Group" : null));
+        }
+        Show show = new Show();
+        show.setShowToken(SHOW_TOKEN);
+        show.setSequences(sequences);
+        show.setSequenceGroups(new ArrayList<>(List.of(SequenceGroup.builder().name("Group").visibilityCount(0).build())));
+        show.setRequests(new ArrayList<>(List.of(requests)));
+        show.setVotes(new ArrayList<>());
+        show.setPreferences(Preference.builder().hideSequenceCount(hideSequenceCount).build());
+        return show;
+    }
+
+    private static Sequence sequence(String name, String group) {
+        return Sequence.builder()
+                .name(name)
+                .index(Integer.parseInt(name.substring(name.length() - 1)))
+                .active(true)
+                .visibilityCount(0)
+                .group(group)
+                .build();
+    }
+
+    private static Request request(String sequenceName, int position) {
+        return request(sequenceName, null, position);
+    }
+
+    private static Request request(String sequenceName, String group, int position) {
+        return Request.builder()
+                .sequence(sequence(sequenceName, group))
+                .position(position)
+                .ownerRequested(false)
+                .build();
+    }
+}
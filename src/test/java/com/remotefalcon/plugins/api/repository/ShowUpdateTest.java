@@ -0,0 +1,94 @@
+package com.remotefalcon.plugins.api.repository;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.model.Filters;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShowUpdateTest {
+
+    @Test
+    void setOfParentReplacesEarlierChildOperations() {
+        ShowUpdate update = new ShowUpdate()
+                .set("requests.0.position", 3)
+                .inc("requests.1.position", 1)
+                .push("requests", new Document("position", 9))
+                .pull("requests", new Document("position", 2))
+                .set("requests", List.of());
+
+        BsonDocument bson = bson(update);
+        assertEquals(Set.of("$set"), bson.keySet());
+        assertEquals(Set.of("requests"), bson.getDocument("$set").keySet());
+    }
+
+    @Test
+    void laterChildOperationsUnderSetPathAreDropped() {
+        ShowUpdate update = new ShowUpdate()
+                .set("votes", List.of())
+                .set("votes.0.votes", 5)
+                .inc("votes.1.votes", 1)
+                .push("votes", new Document("votes", 1))
+                .pull("votes", new Document("votes", 0));
+
+        BsonDocument bson = bson(update);
+        assertEquals(Set.of("$set"), bson.keySet());
+        assertEquals(Set.of("votes"), bson.getDocument("$set").keySet());
+    }
+
+    @Test
+    void operationsOnOtherPathsAreKept() {
+        ShowUpdate update = new ShowUpdate()
+                .set("preferences.viewerControlEnabled", true)
+                .set("preferences.sequencesPlayed", 0)
+                .inc("sequences.2.visibilityCount", -1)
+                .push("requests", new Document("position", 1));
+
+        BsonDocument bson = bson(update);
+        assertEquals(Set.of("preferences.viewerControlEnabled", "preferences.sequencesPlayed"), bson.getDocument("$set").keySet());
+        assertEquals(Set.of("sequences.2.visibilityCount"), bson.getDocument("$inc").keySet());
+        assertEquals(Set.of("requests"), bson.getDocument("$push").keySet());
+    }
+
+    @Test
+    void setOfPathWithSharedPrefixDoesNotCoverIt() {
+        ShowUpdate update = new ShowUpdate()
+                .set("sequence", "A")
+                .set("sequences.0.index", 4);
+
+        assertEquals(Set.of("sequence", "sequences.0.index"), bson(update).getDocument("$set").keySet());
+    }
+
+    @Test
+    void arrayFiltersOfDroppedOperationsAreLeftOut() {
+        ShowUpdate update = new ShowUpdate()
+                .inc("sequences.$[hidden].visibilityCount", -1)
+                .arrayFilter("hidden", Filters.gt("hidden.visibilityCount", 0));
+        assertEquals(1, update.toOptions().getArrayFilters().size());
+
+        update.set("sequences", List.of());
+        assertNull(update.toOptions().getArrayFilters());
+    }
+
+    @Test
+    void touchesParentsAndChildren() {
+        ShowUpdate update = new ShowUpdate().set("preferences.viewerControlMode", "VOTING");
+
+        assertTrue(update.touches("preferences"));
+        assertTrue(update.touches("preferences.viewerControlMode"));
+        assertFalse(update.touches("preferences.psaEnabled"));
+        assertFalse(update.touches("requests"));
+    }
+
+    private static BsonDocument bson(ShowUpdate update) {
+        return update.toBson().toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+    }
+}
@@ -0,0 +1,95 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoException;
+import com.remotefalcon.library.quarkus.entity.Show;
+import com.remotefalcon.plugins.api.repository.ShowRepository;
+import com.remotefalcon.plugins.api.repository.ShowUpdate;
+import com.remotefalcon.plugins.api.repository.VersionedShow;
+import org.bson.BsonDocument;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.codecs.pojo.PojoCodecProvider;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * {@link ShowRepository} over one stored show for the service tests. Writes are recorded instead of sent, the
+ * next {@link #conflicts} conditional writes fail as if another writer had changed the show, and the next
+ * {@link #bulkFailures} bulk writes throw.
+ */
+class FakeShowRepository extends ShowRepository {
+    private static final CodecRegistry CODECS = CodecRegistries.fromRegistries(
+            MongoClientSettings.getDefaultCodecRegistry(),
+            CodecRegistries.fromProviders(PojoCodecProvider.builder().automatic(true).build()));
+
+    //Returned by loads, with storedVersion
+    Show stored;
+    Long storedVersion;
+    String playlistSyncHash;
+    int conflicts;
+    int loads;
+    final List<BsonDocument> updates = new ArrayList<>();
+    //The version each recorded update was conditional on, null for unconditional ones
+    final List<Long> expectedVersions = new ArrayList<>();
+    int bulkFailures;
+    //Each successful bulk write, by show token
+    final List<Map<String, BsonDocument>> bulkUpdates = new ArrayList<>();
+
+    @Override
+    public boolean update(String showToken, ShowUpdate update) {
+        if(update.isEmpty()) {
+            return false;
+        }
+        this.record(update, null);
+        return true;
+    }
+
+    @Override
+    public boolean update(String showToken, Long expectedVersion, ShowUpdate update) {
+        if(update.isEmpty()) {
+            return true;
+        }
+        this.record(update, expectedVersion);
+        if(this.conflicts > 0) {
+            this.conflicts--;
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void bulkUpdate(Map<String, ShowUpdate> updatesByShowToken) {
+        if(this.bulkFailures > 0) {
+            this.bulkFailures--;
+            throw new MongoException("Bulk write failed");
+        }
+        Map<String, BsonDocument> bulkUpdate = new HashMap<>();
+        updatesByShowToken.forEach((showToken, update) -> bulkUpdate.put(showToken, bson(update)));
+        this.bulkUpdates.add(bulkUpdate);
+    }
+
+    private void record(ShowUpdate update, Long expectedVersion) {
+        this.updates.add(bson(update));
+        this.expectedVersions.add(expectedVersion);
+    }
+
+    @Override
+    public Optional<VersionedShow> findVersionedByShowToken(String showToken, String[] fields) {
+        this.loads++;
+        return Optional.ofNullable(this.stored).map(show -> new VersionedShow(show, this.storedVersion, 0));
+    }
+
+    @Override
+    public String findStringField(String showToken, String field) {
+        return PlaylistSync.HASH_FIELD.equals(field) ? this.playlistSyncHash : null;
+    }
+
+    static BsonDocument bson(ShowUpdate update) {
+        return update.toBson().toBsonDocument(BsonDocument.class, CODECS);
+    }
+}
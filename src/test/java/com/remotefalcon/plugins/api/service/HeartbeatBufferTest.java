@@ -0,0 +1,63 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.remotefalcon.plugins.api.repository.ShowUpdate;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HeartbeatBufferTest {
+    private static final String TOKEN = "token";
+
+    private FakeShowRepository showRepository;
+    private HeartbeatBuffer heartbeatBuffer;
+
+    @BeforeEach
+    void heartbeatBuffer() {
+        this.showRepository = new FakeShowRepository();
+        this.heartbeatBuffer = new HeartbeatBuffer();
+        this.heartbeatBuffer.showRepository = this.showRepository;
+    }
+
+    @Test
+    void failedFlushKeepsVersionsWhenANewerHeartbeatArrives() {
+        this.heartbeatBuffer.pluginVersion(TOKEN, "2024.1", "8.0");
+        this.heartbeatBuffer.heartbeat(TOKEN, LocalDateTime.now().minusSeconds(10));
+        this.showRepository.bulkFailures = 1;
+        this.heartbeatBuffer.flush();
+        assertTrue(this.showRepository.bulkUpdates.isEmpty());
+
+        LocalDateTime newerHeartbeat = LocalDateTime.now();
+        this.heartbeatBuffer.heartbeat(TOKEN, newerHeartbeat);
+        this.heartbeatBuffer.flush();
+
+        assertEquals(1, this.showRepository.bulkUpdates.size());
+        BsonDocument set = this.showRepository.bulkUpdates.getFirst().get(TOKEN).getDocument("$set");
+        assertEquals(Set.of("pluginVersion", "fppVersion", "lastFppHeartbeat"), set.keySet());
+        assertEquals(new BsonString("2024.1"), set.get("pluginVersion"));
+        assertEquals(new BsonString("8.0"), set.get("fppVersion"));
+        assertEquals(FakeShowRepository.bson(new ShowUpdate()
+                .set("lastFppHeartbeat", newerHeartbeat)).getDocument("$set").get("lastFppHeartbeat"),
+                set.get("lastFppHeartbeat"));
+    }
+
+    @Test
+    void newerVersionsWinOverTheFailedOnes() {
+        this.heartbeatBuffer.pluginVersion(TOKEN, "2024.1", "8.0");
+        this.showRepository.bulkFailures = 1;
+        this.heartbeatBuffer.flush();
+
+        this.heartbeatBuffer.pluginVersion(TOKEN, "2024.2", "8.1");
+        this.heartbeatBuffer.flush();
+
+        BsonDocument set = this.showRepository.bulkUpdates.getFirst().get(TOKEN).getDocument("$set");
+        assertEquals(new BsonString("2024.2"), set.get("pluginVersion"));
+        assertEquals(new BsonString("8.1"), set.get("fppVersion"));
+    }
+}
@@ -0,0 +1,139 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.remotefalcon.library.models.Preference;
+import com.remotefalcon.library.models.PsaSequence;
+import com.remotefalcon.library.models.Sequence;
+import com.remotefalcon.library.quarkus.entity.Show;
+import com.remotefalcon.plugins.api.model.SyncPlaylistDetails;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlaylistSyncTest {
+
+    @Test
+    void unchangedSyncOnlyStoresTheHash() {
+        Show show = show();
+        PlaylistSync sync = sync(playlist("Sequence 1", 1), playlist("Sequence 2", 2), playlist("Sequence 3", 3));
+
+        BsonDocument update = FakeShowRepository.bson(sync.finish(show, "hash"));
+
+        assertEquals(Set.of("$set"), update.keySet());
+        assertEquals(Set.of(PlaylistSync.HASH_FIELD), update.getDocument("$set").keySet());
+        assertEquals("hash", update.getDocument("$set").getString(PlaylistSync.HASH_FIELD).getValue());
+    }
+
+    @Test
+    void removedPlaylistsAreDeactivatedAndReindexedOnesUpdated() {
+        Show show = show();
+        PlaylistSync sync = sync(playlist("Sequence 1", 1), playlist("Sequence 3", 5));
+
+        BsonDocument update = FakeShowRepository.bson(sync.finish(show, "hash"));
+
+        assertEquals(Set.of("sequences.1.active", "sequences.1.index", "sequences.1.order", "sequences.2.index",
+                PlaylistSync.HASH_FIELD), update.getDocument("$set").keySet());
+        Sequence removed = show.getSequences().get(1);
+        assertFalse(removed.getActive());
+        assertNull(removed.getIndex());
+        //Inactive sequences are ordered after the synced playlists
+        assertEquals(3, removed.getOrder());
+        assertEquals(5, show.getSequences().get(2).getIndex());
+    }
+
+    @Test
+    void addedPlaylistsRewriteTheSequences() {
+        Show show = show();
+        PlaylistSync sync = sync(playlist("Sequence 1", 1), playlist("Sequence 3", 3), playlist("Sequence 4", 4));
+
+        BsonDocument update = FakeShowRepository.bson(sync.finish(show, "hash"));
+
+        //The deactivation of Sequence 2 is carried by the rewritten list
+        assertEquals(Set.of("sequences", PlaylistSync.HASH_FIELD), update.getDocument("$set").keySet());
+        assertEquals(List.of("Sequence 1", "Sequence 2", "Sequence 3", "Sequence 4"),
+                update.getDocument("$set").getArray("sequences").stream()
+                        .map(sequence -> sequence.asDocument().getString("name").getValue())
+                        .toList());
+        assertFalse(show.getSequences().get(1).getActive());
+        Sequence added = show.getSequences().get(3);
+        assertTrue(added.getActive());
+        assertEquals(4, added.getIndex());
+        assertEquals("SEQUENCE", added.getType());
+    }
+
+    @Test
+    void psaSequencesNoLongerSyncedAreRemoved() {
+        Show show = show();
+        show.setPsaSequences(new ArrayList<>(List.of(
+                PsaSequence.builder().name("Sequence 1").order(0).build(),
+                PsaSequence.builder().name("Sequence 2").order(1).build())));
+        show.getPreferences().setPsaEnabled(true);
+        PlaylistSync sync = sync(playlist("Sequence 1", 1), playlist("Sequence 3", 3));
+
+        BsonDocument update = FakeShowRepository.bson(sync.finish(show, "hash"));
+
+        assertTrue(update.getDocument("$set").containsKey("psaSequences"));
+        assertEquals(List.of("Sequence 1"), show.getPsaSequences().stream().map(PsaSequence::getName).toList());
+        assertTrue(show.getPreferences().getPsaEnabled());
+    }
+
+    @Test
+    void hashChangesWithAnyPlaylistDetail() {
+        String hash = sync(playlist("Sequence 1", 1), playlist("Sequence 2", 2)).hash();
+
+        assertEquals(hash, sync(playlist("Sequence 1", 1), playlist("Sequence 2", 2)).hash());
+        assertNotEquals(hash, sync(playlist("Sequence 1", 1), playlist("Sequence 2", 3)).hash());
+        assertNotEquals(hash, sync(playlist("Sequence 2", 2), playlist("Sequence 1", 1)).hash());
+        assertNotEquals(hash, sync(playlist("Sequence 1", 1)).hash());
+    }
+
+    static PlaylistSync sync(SyncPlaylistDetails... playlists) {
+        PlaylistSync sync = new PlaylistSync();
+        for(SyncPlaylistDetails playlist : playlists) {
+            sync.accept(playlist);
+        }
+        return sync;
+    }
+
+    static SyncPlaylistDetails playlist(String name, int index) {
+        return SyncPlaylistDetails.builder()
+                .playlistName(name)
+                .playlistIndex(index)
+                .playlistDuration(180)
+                .playlistType("SEQUENCE")
+                .build();
+    }
+
+    /**
+     * Three active sequences, indexed and ordered as a sync of them would leave them, and no PSAs.
+     */
+    static Show show() {
+        List<Sequence> sequences = new ArrayList<>();
+        for(int i = 1; i <= 3; i++) {
+            sequences.add(Sequence.builder()
+                    .name("Sequence " + i)
+                    .displayName("Sequence " + i)
+                    .index(i)
+                    .order(i - 1)
+                    .active(true)
+                    .visible(true)
+                    .visibilityCount(0)
+                    .type("SEQUENCE")
+                    .build());
+        }
+        Show show = new Show();
+        show.setShowToken("sync-test");
+        show.setSequences(sequences);
+        show.setPsaSequences(new ArrayList<>());
+        show.setPreferences(Preference.builder().psaEnabled(false).build());
+        return show;
+    }
+}
@@ -0,0 +1,147 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.remotefalcon.library.models.Preference;
+import com.remotefalcon.library.quarkus.entity.Show;
+import com.remotefalcon.plugins.api.context.ShowContext;
+import com.remotefalcon.plugins.api.diagnostics.ShowProfiler;
+import com.remotefalcon.plugins.api.model.SyncPlaylistDetails;
+import com.remotefalcon.plugins.api.model.SyncPlaylistRequest;
+import jakarta.ws.rs.WebApplicationException;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link PluginService} wired by hand around {@link FakeShowRepository}, with the show the filter would have loaded.
+ */
+class PluginServiceTest {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private FakeShowRepository showRepository;
+    private ShowContext showContext;
+    private PluginService pluginService;
+
+    @BeforeEach
+    void service() {
+        this.showRepository = new FakeShowRepository();
+        this.showContext = new ShowContext();
+        ShowUnitOfWork unitOfWork = new ShowUnitOfWork();
+        unitOfWork.showContext = this.showContext;
+        unitOfWork.showRepository = this.showRepository;
+        //Never samples, the sample rate is left at 0
+        unitOfWork.showProfiler = new ShowProfiler();
+        ShowLocks showLocks = new ShowLocks();
+        showLocks.stripes = 1;
+        showLocks.init();
+        this.pluginService = new PluginService();
+        this.pluginService.showContext = this.showContext;
+        this.pluginService.showRepository = this.showRepository;
+        this.pluginService.unitOfWork = unitOfWork;
+        this.pluginService.showLocks = showLocks;
+        this.pluginService.objectMapper = OBJECT_MAPPER;
+        this.pluginService.sequenceLimit = 100;
+        this.pluginService.maxWriteAttempts = 3;
+    }
+
+    @Test
+    void syncMatchingTheStoredHashLoadsAndWritesNothing() throws Exception {
+        this.loaded(PlaylistSyncTest.show(), 1L);
+        this.showRepository.playlistSyncHash = PlaylistSyncTest.sync(
+                PlaylistSyncTest.playlist("Sequence 1", 1), PlaylistSyncTest.playlist("Sequence 4", 4)).hash();
+
+        assertEquals("Success", this.pluginService.syncPlaylists(body(
+                PlaylistSyncTest.playlist("Sequence 1", 1), PlaylistSyncTest.playlist("Sequence 4", 4))).getMessage());
+
+        assertEquals(0, this.showRepository.loads);
+        assertTrue(this.showRepository.updates.isEmpty());
+    }
+
+    @Test
+    void changedSyncLoadsTheSequencesAndWritesTheDiffWithTheHash() throws Exception {
+        this.loaded(PlaylistSyncTest.show(), 1L);
+        this.showRepository.playlistSyncHash = "previous";
+        String hash = PlaylistSyncTest.sync(
+                PlaylistSyncTest.playlist("Sequence 1", 1), PlaylistSyncTest.playlist("Sequence 2", 2)).hash();
+
+        assertEquals("Success", this.pluginService.syncPlaylists(body(
+                PlaylistSyncTest.playlist("Sequence 1", 1), PlaylistSyncTest.playlist("Sequence 2", 2))).getMessage());
+
+        assertEquals(1, this.showRepository.loads);
+        assertEquals(List.of(1L), this.showRepository.expectedVersions);
+        BsonDocument sets = this.showRepository.updates.getFirst().getDocument("$set");
+        assertEquals(Set.of("sequences.2.active", "sequences.2.index", "sequences.2.order", PlaylistSync.HASH_FIELD), sets.keySet());
+        assertEquals(hash, sets.getString(PlaylistSync.HASH_FIELD).getValue());
+        assertFalse(this.showRepository.stored.getSequences().get(2).getActive());
+    }
+
+    @Test
+    void conflictReloadsTheShowAndRetriesOnTheNewVersion() {
+        this.showContext.setShow(viewerControlShow(true));
+        this.showContext.setVersion(1L);
+        //Another writer turned viewer control off in the meantime
+        this.showRepository.stored = viewerControlShow(false);
+        this.showRepository.storedVersion = 2L;
+        this.showRepository.conflicts = 1;
+
+        this.pluginService.toggleViewerControl();
+
+        assertEquals(1, this.showRepository.loads);
+        assertEquals(List.of(1L, 2L), this.showRepository.expectedVersions);
+        assertFalse(this.showRepository.updates.get(0).getDocument("$set").getBoolean("preferences.viewerControlEnabled").getValue());
+        assertTrue(this.showRepository.updates.get(1).getDocument("$set").getBoolean("preferences.viewerControlEnabled").getValue());
+        assertSame(this.showRepository.stored, this.showContext.getShow());
+        assertTrue(this.showContext.getShow().getPreferences().getViewerControlEnabled());
+    }
+
+    @Test
+    void conflictOnEveryAttemptAnswersConflict() {
+        this.showContext.setShow(viewerControlShow(true));
+        this.showContext.setVersion(1L);
+        this.showRepository.stored = viewerControlShow(true);
+        this.showRepository.storedVersion = 2L;
+        this.showRepository.conflicts = Integer.MAX_VALUE;
+
+        WebApplicationException conflict = assertThrows(WebApplicationException.class, () -> this.pluginService.toggleViewerControl());
+
+        assertEquals(409, conflict.getResponse().getStatus());
+        assertEquals(3, this.showRepository.updates.size());
+        assertEquals(2, this.showRepository.loads);
+    }
+
+    private static Show viewerControlShow(boolean viewerControlEnabled) {
+        Show show = new Show();
+        show.setShowToken("conflict-test");
+        show.setPreferences(Preference.builder().viewerControlEnabled(viewerControlEnabled).sequencesPlayed(4).build());
+        return show;
+    }
+
+    /**
+     * Puts the show in the request as the filter does, and stores it for loads. The filter loads only the token
+     * for a sync, so the request's show is a copy without sequences.
+     */
+    private void loaded(Show show, Long version) {
+        Show filtered = new Show();
+        filtered.setShowToken(show.getShowToken());
+        this.showContext.setShow(filtered);
+        this.showContext.setVersion(version);
+        this.showRepository.stored = show;
+        this.showRepository.storedVersion = version;
+    }
+
+    private static InputStream body(SyncPlaylistDetails... playlists) throws Exception {
+        return new ByteArrayInputStream(OBJECT_MAPPER.writeValueAsBytes(
+                SyncPlaylistRequest.builder().playlists(List.of(playlists)).build()));
+    }
+}
@@ -0,0 +1,79 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.remotefalcon.library.enums.ViewerControlMode;
+import com.remotefalcon.library.models.Request;
+import com.remotefalcon.library.models.Sequence;
+import com.remotefalcon.plugins.api.model.PluginResponse;
+import com.remotefalcon.plugins.api.model.RemotePreferenceResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * The hand-written and precomputed bodies must stay byte for byte what Jackson writes for the same models.
+ */
+class PollingResponsesTest {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    //Escapes, control characters, non-ASCII and characters that stay as they are
+    private static final List<String> NAMES = Arrays.asList(
+            "Sequence 1", "", null, "Quote \" and backslash \\", "Tab\tnewline\ncontrol\u0001", "Über Lichter ✨ 🎄",
+            "</script>&<>'");
+
+    private PollingResponses pollingResponses;
+
+    @BeforeEach
+    void responses() throws JsonProcessingException {
+        this.pollingResponses = new PollingResponses();
+        this.pollingResponses.objectMapper = OBJECT_MAPPER;
+        this.pollingResponses.init();
+    }
+
+    @Test
+    void constantBodies() throws JsonProcessingException {
+        assertArrayEquals(json(PluginResponse.builder().message("Success").build()), this.pollingResponses.success());
+        assertArrayEquals(json(PluginResponse.builder().message("Queue Empty").build()), this.pollingResponses.queueEmpty());
+        for(ViewerControlMode mode : ViewerControlMode.values()) {
+            assertArrayEquals(json(PluginResponse.builder().viewerControlMode(mode.name().toLowerCase()).build()),
+                    this.pollingResponses.viewerControlMode(mode));
+        }
+    }
+
+    @Test
+    void nextPlaylist() throws JsonProcessingException {
+        assertArrayEquals(json(PluginService.nextPlaylistResponse(Optional.empty())),
+                this.pollingResponses.nextPlaylist(Optional.empty()));
+        for(String name : NAMES) {
+            for(Integer index : Arrays.asList(0, 42, -1, Integer.MAX_VALUE, null)) {
+                Optional<Request> request = Optional.of(Request.builder()
+                        .sequence(Sequence.builder().name(name).index(index).build())
+                        .build());
+                assertArrayEquals(json(PluginService.nextPlaylistResponse(request)), this.pollingResponses.nextPlaylist(request),
+                        name + " at " + index);
+            }
+        }
+    }
+
+    @Test
+    void remotePreferences() throws JsonProcessingException {
+        for(ViewerControlMode mode : ViewerControlMode.values()) {
+            for(String subdomain : NAMES) {
+                RemotePreferenceResponse response = RemotePreferenceResponse.builder()
+                        .viewerControlMode(mode.name().toLowerCase())
+                        .remoteSubdomain(subdomain)
+                        .build();
+                assertArrayEquals(json(response), this.pollingResponses.remotePreferences(mode, subdomain), mode + " " + subdomain);
+            }
+        }
+    }
+
+    private static byte[] json(Object model) throws JsonProcessingException {
+        return OBJECT_MAPPER.writeValueAsBytes(model);
+    }
+}
@@ -0,0 +1,142 @@
+package com.remotefalcon.plugins.api.service;
+
+import com.remotefalcon.library.models.Preference;
+import com.remotefalcon.library.models.Request;
+import com.remotefalcon.library.models.Sequence;
+import com.remotefalcon.library.quarkus.entity.Show;
+import com.remotefalcon.plugins.api.context.ShowContext;
+import com.remotefalcon.plugins.api.diagnostics.ShowProfiler;
+import com.remotefalcon.plugins.api.repository.ShowUpdate;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShowUnitOfWorkTest {
+    private FakeShowRepository showRepository;
+    private ShowContext showContext;
+    private ShowUnitOfWork unitOfWork;
+
+    @BeforeEach
+    void unitOfWork() {
+        this.showRepository = new FakeShowRepository();
+        this.showContext = new ShowContext();
+        this.showContext.setShow(show());
+        this.showContext.setVersion(5L);
+        this.unitOfWork = new ShowUnitOfWork();
+        this.unitOfWork.showContext = this.showContext;
+        this.unitOfWork.showRepository = this.showRepository;
+        //Never samples, the sample rate is left at 0
+        this.unitOfWork.showProfiler = new ShowProfiler();
+    }
+
+    @Test
+    void changesAreWrittenAsOneUpdate() {
+        this.unitOfWork.change(new ShowUpdate().set("playingNow", "Sequence 1"));
+        this.unitOfWork.change(new ShowUpdate().set("preferences.sequencesPlayed", 3));
+        this.unitOfWork.change(new ShowUpdate().inc("sequences.0.visibilityCount", -1));
+
+        assertTrue(this.unitOfWork.flush());
+
+        assertEquals(1, this.showRepository.updates.size());
+        BsonDocument update = this.showRepository.updates.getFirst();
+        assertEquals(Set.of("playingNow", "preferences.sequencesPlayed"), update.getDocument("$set").keySet());
+        assertEquals(Set.of("sequences.0.visibilityCount"), update.getDocument("$inc").keySet());
+        assertFalse(this.unitOfWork.isDirty());
+    }
+
+    @Test
+    void flushIsConditionalOnceAnyChangeDependsOnTheLoadedShow() {
+        this.unitOfWork.change(new ShowUpdate().set("playingNow", "Sequence 1"));
+        this.unitOfWork.flush();
+        this.unitOfWork.change(new ShowUpdate().set("playingNow", "Sequence 2"));
+        this.unitOfWork.changeIfUnchanged(new ShowUpdate().set("preferences.sequencesPlayed", 3));
+        this.unitOfWork.flush();
+
+        assertEquals(Arrays.asList(null, 5L), this.showRepository.expectedVersions);
+    }
+
+    @Test
+    void partialChangesThatCannotBeCombinedRewriteTheWholeField() {
+        Show show = this.showContext.getShow();
+        Request added = request("Sequence 2", 3);
+        show.getRequests().add(added);
+        this.unitOfWork.change(new ShowUpdate().push("requests", added));
+        show.getRequests().getFirst().setPosition(9);
+        this.unitOfWork.change(new ShowUpdate().set("requests.0.position", 9));
+
+        this.unitOfWork.flush();
+
+        BsonDocument update = this.showRepository.updates.getFirst();
+        assertEquals(Set.of("$set"), update.keySet());
+        assertEquals(List.of(9, 3), update.getDocument("$set").getArray("requests").stream()
+                .map(request -> request.asDocument().getInt32("position").getValue())
+                .toList());
+    }
+
+    @Test
+    void setsOfPlainSubDocumentsAreCombined() {
+        this.unitOfWork.change(new ShowUpdate().set("preferences.viewerControlEnabled", false));
+        this.unitOfWork.change(new ShowUpdate().set("preferences.sequencesPlayed", 0));
+
+        this.unitOfWork.flush();
+
+        assertEquals(Set.of("preferences.viewerControlEnabled", "preferences.sequencesPlayed"),
+                this.showRepository.updates.getFirst().getDocument("$set").keySet());
+    }
+
+    @Test
+    void conflictWritesNothingElseAndDropsTheActionsWaitingOnIt() {
+        this.showRepository.conflicts = 1;
+        List<String> ran = new ArrayList<>();
+        this.unitOfWork.changeIfUnchanged(new ShowUpdate().set("preferences.sequencesPlayed", 3));
+        this.unitOfWork.afterFlush(() -> ran.add("recorded"));
+
+        assertFalse(this.unitOfWork.flush());
+
+        assertEquals(1, this.showRepository.updates.size());
+        assertTrue(ran.isEmpty());
+        assertFalse(this.unitOfWork.isDirty());
+    }
+
+    @Test
+    void actionsRunAfterASuccessfulFlush() {
+        List<String> ran = new ArrayList<>();
+        this.unitOfWork.afterFlush(() -> ran.add("recorded"));
+
+        assertTrue(this.unitOfWork.flush());
+
+        assertEquals(List.of("recorded"), ran);
+    }
+
+    @Test
+    void fieldsWithoutALoadedValueCannotBeRewritten() {
+        assertThrows(IllegalStateException.class, () -> ShowUnitOfWork.wholeField(new Show(), "requests"));
+        assertThrows(IllegalStateException.class, () -> ShowUnitOfWork.wholeField(show(), "playingNow"));
+    }
+
+    private static Show show() {
+        Show show = new Show();
+        show.setShowToken("unit-of-work-test");
+        show.setRequests(new ArrayList<>(List.of(request("Sequence 1", 1))));
+        show.setPreferences(Preference.builder().sequencesPlayed(2).viewerControlEnabled(true).build());
+        return show;
+    }
+
+    private static Request request(String sequenceName, int position) {
+        return Request.builder()
+                .sequence(Sequence.builder().name(sequenceName).build())
+                .position(position)
+                .ownerRequested(false)
+                .build();
+    }
+}